@@ -0,0 +1,92 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Output formats of the audit, one line per user, resource and policy.
+ */
+public enum AuditFormat {
+    CSV {
+        @Override
+        String header() {
+            return String.join(",", COLUMNS) + "\n";
+        }
+
+        @Override
+        void appendRow(StringBuilder out, String... values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendCsv(out, values[i]);
+            }
+            out.append('\n');
+        }
+    },
+    JSONL {
+        @Override
+        String header() {
+            return "";
+        }
+
+        @Override
+        void appendRow(StringBuilder out, String... values) {
+            out.append('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append('"').append(COLUMNS[i]).append("\":");
+                if (values[i] == null) {
+                    out.append("null");
+                } else if (i == GRANTED_COLUMN) {
+                    out.append(values[i]);
+                } else {
+                    out.append('"');
+                    JsonStringEncoder.getInstance().quoteAsString(values[i], out);
+                    out.append('"');
+                }
+            }
+            out.append("}\n");
+        }
+    };
+
+    static final String[] COLUMNS = { "realm", "clientId", "policyId", "policyName", "resourceId", "resourceName",
+            "userId", "username", "outcome", "granted" };
+
+    private static final int GRANTED_COLUMN = 9;
+
+    abstract String header();
+
+    /**
+     * Appends one line with the values of {@link #COLUMNS}, in order.
+     */
+    abstract void appendRow(StringBuilder out, String... values);
+
+    private static void appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quoted) {
+            out.append(value);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,38 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Group read from a realm export.
+ */
+public final class AuditGroup {
+    private final String id;
+    private final String name;
+    private final String path;
+    private final Map<String, List<String>> attributes;
+
+    public AuditGroup(String id, String name, String path, Map<String, List<String>> attributes) {
+        this.id = id;
+        this.name = name;
+        this.path = path;
+        this.attributes = attributes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getAttribute(String name) {
+        return attributes.getOrDefault(name, Collections.emptyList());
+    }
+}
@@ -0,0 +1,66 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.keycloak.authorization.policy.provider.groupmembership.GroupLookup;
+
+/**
+ * Groups of a realm export, indexed by id, name and path. Attribute indexes
+ * are built on first use. Lookups happen while the allowed groups of the
+ * resources are resolved, before users are evaluated, so the class is not
+ * thread-safe.
+ */
+public final class AuditGroups implements GroupLookup<AuditGroup> {
+    private final Map<String, AuditGroup> byId = new HashMap<>();
+    private final Map<String, List<AuditGroup>> byName = new HashMap<>();
+    private final Map<String, AuditGroup> byPath = new HashMap<>();
+    private final Map<String, Map<String, List<AuditGroup>>> byAttribute = new HashMap<>();
+
+    void add(AuditGroup group) {
+        byId.put(group.getId(), group);
+        byName.computeIfAbsent(group.getName(), name -> new ArrayList<>(1)).add(group);
+        byPath.put(group.getPath(), group);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public AuditGroup findById(String id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public List<AuditGroup> findByName(String name) {
+        return byName.getOrDefault(name, Collections.emptyList());
+    }
+
+    @Override
+    public AuditGroup findByPath(String path) {
+        return byPath.get(path);
+    }
+
+    @Override
+    public List<AuditGroup> findByAttribute(String attributeName, String value) {
+        return byAttribute.computeIfAbsent(attributeName, this::indexAttribute)
+                .getOrDefault(value, Collections.emptyList());
+    }
+
+    private Map<String, List<AuditGroup>> indexAttribute(String attributeName) {
+        Map<String, List<AuditGroup>> index = new HashMap<>();
+
+        for (AuditGroup group : byId.values()) {
+            List<String> values = group.getAttribute(attributeName);
+            if (!values.isEmpty() && values.get(0) != null) {
+                index.computeIfAbsent(values.get(0), value -> new ArrayList<>(1)).add(group);
+            }
+        }
+
+        return index;
+    }
+}
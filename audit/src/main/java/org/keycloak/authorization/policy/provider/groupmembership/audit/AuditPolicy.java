@@ -0,0 +1,96 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.List;
+
+import org.keycloak.authorization.policy.provider.groupmembership.ClaimedGroups;
+import org.keycloak.authorization.policy.provider.groupmembership.EvaluationOutcome;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipMatcher;
+
+/**
+ * Group membership policy of a resource server, together with the groups
+ * each resource of the resource server grants access to under it. The allowed
+ * groups are resolved once, so evaluating a user only tests its groups against
+ * them.
+ */
+public final class AuditPolicy {
+    private static final AuditGroup[] NO_GROUPS = new AuditGroup[0];
+
+    private final String clientId;
+    private final String id;
+    private final String name;
+    private final boolean negative;
+    private final GroupMembershipMatcher matcher;
+    private List<AuditResource> resources;
+    private AuditGroup[][] allowedGroups;
+
+    public AuditPolicy(String clientId, String id, String name, boolean negative, GroupMembershipMatcher matcher) {
+        this.clientId = clientId;
+        this.id = id;
+        this.name = name;
+        this.negative = negative;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Resolves the groups every resource grants access to.
+     */
+    void resolve(List<AuditResource> resources, AuditGroups groups) {
+        AuditGroup[][] allowedGroups = new AuditGroup[resources.size()][];
+
+        for (int i = 0; i < resources.size(); i++) {
+            AuditResource resource = resources.get(i);
+            allowedGroups[i] = matcher.resolveAllowedGroups(resource.getName(), resource.getUris(),
+                    resource.getAttributes(), groups).toArray(NO_GROUPS);
+        }
+
+        this.resources = resources;
+        this.allowedGroups = allowedGroups;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the policy uses negative logic, granting access when the
+     * user is not a member of an allowed group.
+     */
+    public boolean isNegative() {
+        return negative;
+    }
+
+    public List<AuditResource> getResources() {
+        return resources;
+    }
+
+    public EvaluationOutcome evaluate(int resource, ClaimedGroups userGroups) {
+        AuditGroup[] groups = allowedGroups[resource];
+        if (groups.length == 0) {
+            return EvaluationOutcome.NO_MATCH;
+        }
+
+        for (AuditGroup group : groups) {
+            if (userGroups.isMemberOf(group.getName(), group.getPath())) {
+                return EvaluationOutcome.GRANTED;
+            }
+        }
+
+        return EvaluationOutcome.DENIED;
+    }
+
+    /**
+     * Returns whether a permission applying this policy alone is granted for
+     * the given outcome.
+     */
+    public boolean isGranted(EvaluationOutcome outcome) {
+        return (outcome == EvaluationOutcome.GRANTED) != negative;
+    }
+}
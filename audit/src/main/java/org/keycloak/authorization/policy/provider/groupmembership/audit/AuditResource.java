@@ -0,0 +1,37 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resource of a resource server read from a realm export.
+ */
+public final class AuditResource {
+    private final String id;
+    private final String name;
+    private final List<String> uris;
+    private final Map<String, List<String>> attributes;
+
+    public AuditResource(String id, String name, List<String> uris, Map<String, List<String>> attributes) {
+        this.id = id;
+        this.name = name;
+        this.uris = uris;
+        this.attributes = attributes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getUris() {
+        return uris;
+    }
+
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+}
@@ -0,0 +1,78 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import org.keycloak.authorization.policy.provider.groupmembership.ClaimedGroups;
+import org.keycloak.authorization.policy.provider.groupmembership.EvaluationOutcome;
+
+/**
+ * Evaluates every policy and resource of a realm export for a range of users,
+ * splitting the range until each task covers few enough policy and resource
+ * pairs. The lines of each user are written to its own slot of the output, so
+ * the batch is written in user order once every task completed.
+ */
+final class AuditTask extends RecursiveAction {
+    private static final long PAIRS_PER_TASK = 16384;
+
+    private final RealmExport export;
+    private final AuditFormat format;
+    private final boolean all;
+    private final List<AuditUser> users;
+    private final String[] output;
+    private final int from;
+    private final int to;
+
+    AuditTask(RealmExport export, AuditFormat format, boolean all, List<AuditUser> users, String[] output) {
+        this(export, format, all, users, output, 0, users.size());
+    }
+
+    private AuditTask(RealmExport export, AuditFormat format, boolean all, List<AuditUser> users, String[] output,
+            int from, int to) {
+        this.export = export;
+        this.format = format;
+        this.all = all;
+        this.users = users;
+        this.output = output;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > 1 && (to - from) * export.getPairsPerUser() > PAIRS_PER_TASK) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new AuditTask(export, format, all, users, output, from, middle),
+                    new AuditTask(export, format, all, users, output, middle, to));
+            return;
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            out.setLength(0);
+            evaluate(users.get(i), out);
+            output[i] = out.toString();
+        }
+    }
+
+    private void evaluate(AuditUser user, StringBuilder out) {
+        ClaimedGroups userGroups = ClaimedGroups.of(user.getGroups());
+
+        for (AuditPolicy policy : export.getPolicies()) {
+            List<AuditResource> resources = policy.getResources();
+
+            for (int i = 0; i < resources.size(); i++) {
+                EvaluationOutcome outcome = policy.evaluate(i, userGroups);
+                boolean granted = policy.isGranted(outcome);
+                if (!granted && !all) {
+                    continue;
+                }
+
+                AuditResource resource = resources.get(i);
+                format.appendRow(out, export.getRealm(), policy.getClientId(), policy.getId(), policy.getName(),
+                        resource.getId(), resource.getName(), user.getId(), user.getUsername(), outcome.name(),
+                        Boolean.toString(granted));
+            }
+        }
+    }
+}
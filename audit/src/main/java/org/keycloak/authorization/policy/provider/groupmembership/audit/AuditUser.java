@@ -0,0 +1,31 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.List;
+
+/**
+ * User read from a realm export, with the paths of the groups it was added
+ * to.
+ */
+public final class AuditUser {
+    private final String id;
+    private final String username;
+    private final List<String> groups;
+
+    public AuditUser(String id, String username, List<String> groups) {
+        this.id = id;
+        this.username = username;
+        this.groups = groups;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public List<String> getGroups() {
+        return groups;
+    }
+}
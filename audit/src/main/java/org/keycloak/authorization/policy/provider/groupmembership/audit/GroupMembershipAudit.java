@@ -0,0 +1,179 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates the group membership policies of a realm export for every user
+ * and every resource of their resource server, and writes who is granted
+ * access to what as CSV or JSON lines.
+ *
+ * <p>
+ * Groups, resources and policies are read first and the groups each resource
+ * grants access to are resolved once. Users are then streamed from the export
+ * in batches, each evaluated on a fork-join pool while the next one is read,
+ * and written as soon as it completes, so memory is bounded by the realm
+ * structure and two batches of output. Users are evaluated with the paths of
+ * the groups they were added to, as the policy does when the token carries no
+ * groups claim. Negative logic is applied, permissions and the other policies
+ * of the resource server are not.
+ *
+ * <p>
+ * Build with {@code mvn install} in the project root followed by
+ * {@code mvn package} in this module, then run for example:
+ *
+ * <pre>
+ * java -jar target/audit.jar --format jsonl --output access.jsonl realm-export.json
+ * </pre>
+ */
+public final class GroupMembershipAudit {
+    private static final String USAGE = "Usage: java -jar audit.jar [--format csv|jsonl] [--output <file>]"
+            + " [--parallelism <threads>] [--batch-size <users>] [--all]"
+            + " <realm-export.json> [<users-file.json>...]";
+
+    private static final long MAX_PAIRS_PER_BATCH = 500_000;
+
+    private AuditFormat format = AuditFormat.CSV;
+    private Path output;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1000;
+    private boolean all;
+    private final List<Path> files = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        GroupMembershipAudit audit = new GroupMembershipAudit();
+
+        try {
+            audit.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        audit.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = AuditFormat.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "--output":
+                    output = Paths.get(value(args, ++i));
+                    break;
+                case "--parallelism":
+                    parallelism = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--all":
+                    all = true;
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    files.add(Paths.get(args[i]));
+            }
+        }
+
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No realm export given");
+        }
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and batch size must be positive");
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+
+        return args[i];
+    }
+
+    private void run() throws IOException {
+        long start = System.nanoTime();
+        RealmExport export = RealmExportReader.read(files.get(0));
+        long pairsPerUser = export.getPairsPerUser();
+        int usersPerBatch = (int) Math.max(1, Math.min(batchSize, MAX_PAIRS_PER_BATCH / Math.max(1, pairsPerUser)));
+
+        System.err.printf("Realm %s: %d groups, %d resources, %d group membership policies%n", export.getRealm(),
+                export.getGroups().size(), export.getResources(), export.getPolicies().size());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long users = 0;
+        long lines = 0;
+
+        try (UserReader reader = new UserReader(files); Writer writer = open()) {
+            writer.write(format.header());
+
+            List<AuditUser> batch = reader.next(usersPerBatch);
+            ForkJoinTask<?> pending = null;
+            String[] pendingOutput = null;
+
+            while (!batch.isEmpty() || pending != null) {
+                ForkJoinTask<?> task = null;
+                String[] output = new String[batch.size()];
+                if (!batch.isEmpty()) {
+                    task = pool.submit(new AuditTask(export, format, all, batch, output));
+                    users += batch.size();
+                }
+
+                if (pending != null) {
+                    pending.join();
+                    lines += write(writer, pendingOutput);
+                }
+
+                pending = task;
+                pendingOutput = output;
+                batch = task == null ? Collections.emptyList() : reader.next(usersPerBatch);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.err.printf("Evaluated %d users against %d policy and resource pairs each, wrote %d lines in %d ms%n",
+                users, pairsPerUser, lines, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Writer open() throws IOException {
+        if (output == null) {
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        return Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+    }
+
+    private static long write(Writer writer, String[] output) throws IOException {
+        long lines = 0;
+
+        for (String user : output) {
+            writer.write(user);
+            for (int i = 0; i < user.length(); i++) {
+                if (user.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+        }
+        writer.flush();
+
+        return lines;
+    }
+}
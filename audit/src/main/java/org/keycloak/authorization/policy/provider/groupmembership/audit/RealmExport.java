@@ -0,0 +1,52 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.util.List;
+
+/**
+ * Groups, resources and group membership policies of a realm export. Users are
+ * not part of it, they are streamed from the export by a {@link UserReader}.
+ */
+public final class RealmExport {
+    private final String realm;
+    private final AuditGroups groups;
+    private final List<AuditPolicy> policies;
+    private final int resources;
+
+    RealmExport(String realm, AuditGroups groups, List<AuditPolicy> policies, int resources) {
+        this.realm = realm;
+        this.groups = groups;
+        this.policies = policies;
+        this.resources = resources;
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    public AuditGroups getGroups() {
+        return groups;
+    }
+
+    public List<AuditPolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Returns the number of resources across all resource servers.
+     */
+    public int getResources() {
+        return resources;
+    }
+
+    /**
+     * Returns the number of policy and resource pairs evaluated for each user.
+     */
+    public long getPairsPerUser() {
+        long pairs = 0;
+        for (AuditPolicy policy : policies) {
+            pairs += policy.getResources().size();
+        }
+
+        return pairs;
+    }
+}
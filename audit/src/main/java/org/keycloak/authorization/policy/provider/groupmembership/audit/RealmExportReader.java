@@ -0,0 +1,356 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipMatcher;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the groups, resources and group membership policies of a realm export
+ * with a streaming parser, skipping users and every other part of the realm
+ * without building it in memory.
+ */
+public final class RealmExportReader {
+    static final JsonFactory JSON = new JsonFactory();
+
+    private static final String POLICY_TYPE = "group-membership";
+    private static final String NEGATIVE = "NEGATIVE";
+
+    private RealmExportReader() {
+    }
+
+    public static RealmExport read(Path file) throws IOException {
+        String realm = null;
+        AuditGroups groups = new AuditGroups();
+        List<Client> clients = new ArrayList<>();
+
+        try (JsonParser parser = JSON.createParser(file.toFile())) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "realm":
+                        realm = parser.getValueAsString();
+                        break;
+                    case "groups":
+                        readGroups(parser, null, groups);
+                        break;
+                    case "clients":
+                        readClients(parser, clients);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        List<AuditPolicy> policies = new ArrayList<>();
+        int resources = 0;
+        for (Client client : clients) {
+            for (AuditPolicy policy : client.policies) {
+                policy.resolve(client.resources, groups);
+                policies.add(policy);
+            }
+            resources += client.resources.size();
+        }
+
+        return new RealmExport(realm, groups, policies, resources);
+    }
+
+    private static void readGroups(JsonParser parser, String parentPath, AuditGroups groups) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String id = null;
+            String name = null;
+            String path = null;
+            Map<String, List<String>> attributes = Collections.emptyMap();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "id":
+                        id = parser.getValueAsString();
+                        break;
+                    case "name":
+                        name = parser.getValueAsString();
+                        break;
+                    case "path":
+                        path = parser.getValueAsString();
+                        break;
+                    case "attributes":
+                        attributes = readAttributes(parser);
+                        break;
+                    case "subGroups":
+                        readGroups(parser, path(parentPath, name, path), groups);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            path = path(parentPath, name, path);
+            if (id != null && name != null && path != null) {
+                groups.add(new AuditGroup(id, name, path, attributes));
+            }
+        }
+    }
+
+    private static String path(String parentPath, String name, String path) {
+        if (path != null || name == null) {
+            return path;
+        }
+
+        return (parentPath == null ? "" : parentPath) + "/" + name;
+    }
+
+    private static void readClients(JsonParser parser, List<Client> clients) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Client client = new Client();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "clientId":
+                        client.clientId = parser.getValueAsString();
+                        break;
+                    case "authorizationSettings":
+                        readAuthorizationSettings(parser, client);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (!client.policyFields.isEmpty()) {
+                for (PolicyFields policy : client.policyFields) {
+                    client.policies.add(policy.compile(client.clientId));
+                }
+                clients.add(client);
+            }
+        }
+    }
+
+    private static void readAuthorizationSettings(JsonParser parser, Client client) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "resources":
+                    readResources(parser, client.resources);
+                    break;
+                case "policies":
+                    readPolicies(parser, client.policyFields);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readResources(JsonParser parser, List<AuditResource> resources) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String id = null;
+            String name = null;
+            List<String> uris = Collections.emptyList();
+            Map<String, List<String>> attributes = Collections.emptyMap();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "_id":
+                        id = parser.getValueAsString();
+                        break;
+                    case "name":
+                        name = parser.getValueAsString();
+                        break;
+                    case "uris":
+                        uris = readStrings(parser);
+                        break;
+                    case "attributes":
+                        attributes = readAttributes(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            resources.add(new AuditResource(id == null ? name : id, name, uris, attributes));
+        }
+    }
+
+    private static void readPolicies(JsonParser parser, List<PolicyFields> policies) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            PolicyFields policy = new PolicyFields();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "id":
+                        policy.id = parser.getValueAsString();
+                        break;
+                    case "name":
+                        policy.name = parser.getValueAsString();
+                        break;
+                    case "type":
+                        policy.type = parser.getValueAsString();
+                        break;
+                    case "logic":
+                        policy.logic = parser.getValueAsString();
+                        break;
+                    case "config":
+                        policy.config = readConfig(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (POLICY_TYPE.equals(policy.type)) {
+                policies.add(policy);
+            }
+        }
+    }
+
+    private static Map<String, String> readConfig(JsonParser parser) throws IOException {
+        Map<String, String> config = new HashMap<>();
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            config.put(field, parser.getValueAsString());
+            parser.skipChildren();
+        }
+
+        return config;
+    }
+
+    private static Map<String, List<String>> readAttributes(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<String>> attributes = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            attributes.put(field, readStrings(parser));
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Reads an array of strings, or a single string as an array of one.
+     */
+    static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            String value = parser.getValueAsString();
+            parser.skipChildren();
+            return value == null ? Collections.emptyList() : Collections.singletonList(value);
+        }
+
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+            parser.skipChildren();
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads the {@code patterns} of a policy configuration, which the policy
+     * provider stores as a JSON array.
+     */
+    private static List<String> readPatterns(String patterns) throws IOException {
+        try (JsonParser parser = JSON.createParser(patterns)) {
+            parser.nextToken();
+            return readStrings(parser);
+        }
+    }
+
+    static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+        }
+    }
+
+    private static final class Client {
+        private String clientId;
+        private final List<AuditResource> resources = new ArrayList<>();
+        private final List<PolicyFields> policyFields = new ArrayList<>();
+        private final List<AuditPolicy> policies = new ArrayList<>();
+    }
+
+    private static final class PolicyFields {
+        private String id;
+        private String name;
+        private String type;
+        private String logic;
+        private Map<String, String> config = Collections.emptyMap();
+
+        AuditPolicy compile(String clientId) throws IOException {
+            List<String> patterns = new ArrayList<>();
+            if (config.get("pattern") != null) {
+                patterns.add(config.get("pattern"));
+            }
+            if (config.get("patterns") != null) {
+                patterns.addAll(readPatterns(config.get("patterns")));
+            }
+
+            GroupMembershipMatcher matcher = GroupMembershipMatcher.compile(
+                    ResourceMatchTarget.valueOf(required("resourceMatchTarget").toUpperCase()),
+                    GroupMatchTarget.valueOf(required("groupMatchTarget").toUpperCase()),
+                    config.get("groupMatchAttributeName"), patterns);
+
+            return new AuditPolicy(clientId, id, name, NEGATIVE.equals(logic), matcher);
+        }
+
+        private String required(String key) {
+            String value = config.get(key);
+            if (value == null) {
+                throw new IllegalArgumentException("Policy '" + name + "' has no " + key);
+            }
+
+            return value;
+        }
+    }
+}
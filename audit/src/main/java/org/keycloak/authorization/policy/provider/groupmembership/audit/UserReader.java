@@ -0,0 +1,119 @@
+package org.keycloak.authorization.policy.provider.groupmembership.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streams the users of one or more realm export files in batches, so that only
+ * the users of the current batch are held in memory. Exports written with
+ * users in separate files are read by passing every file.
+ */
+public final class UserReader implements Closeable {
+    private final Iterator<Path> files;
+    private JsonParser parser;
+
+    public UserReader(List<Path> files) {
+        this.files = files.iterator();
+    }
+
+    /**
+     * Returns up to {@code max} users, or an empty list once all users were
+     * read.
+     */
+    public List<AuditUser> next(int max) throws IOException {
+        List<AuditUser> users = new ArrayList<>(max);
+
+        while (users.size() < max && advance()) {
+            AuditUser user = readUser();
+            if (user != null) {
+                users.add(user);
+            }
+        }
+
+        return users;
+    }
+
+    /**
+     * Positions the parser on the next user object, opening the next file once
+     * the users of the current one are exhausted.
+     */
+    private boolean advance() throws IOException {
+        while (true) {
+            if (parser != null) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    return true;
+                }
+
+                parser.close();
+                parser = null;
+            }
+
+            if (!files.hasNext()) {
+                return false;
+            }
+
+            parser = RealmExportReader.JSON.createParser(files.next().toFile());
+            if (!seekUsers(parser)) {
+                parser.close();
+                parser = null;
+            }
+        }
+    }
+
+    private static boolean seekUsers(JsonParser parser) throws IOException {
+        RealmExportReader.expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "users".equals(field)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+
+        return false;
+    }
+
+    private AuditUser readUser() throws IOException {
+        String id = null;
+        String username = null;
+        List<String> groups = Collections.emptyList();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "id":
+                    id = parser.getValueAsString();
+                    break;
+                case "username":
+                    username = parser.getValueAsString();
+                    break;
+                case "groups":
+                    groups = RealmExportReader.readStrings(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return id == null && username == null ? null : new AuditUser(id, username, groups);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            parser.close();
+            parser = null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.models.RealmModel;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+/**
+ * Synthetic realm with a balanced group tree of a given size and depth, plus
+ * helpers to derive resources, policies and group claims that reference its
+ * groups under every resource and group match target.
+ */
+public class BenchmarkRealm {
+    public static final String POLICY_TYPE = "group-membership";
+    public static final String GROUPS_CLAIM = "groups";
+    public static final String GROUP_CODE_ATTRIBUTE = "group-code";
+
+    private final RealmModel realm = InMemoryModels.realm("benchmark", "benchmark");
+    private final ResourceServer resourceServer = new InMemoryResourceServer("resource-server");
+    private final InMemoryGroupProvider groupProvider = new InMemoryGroupProvider();
+    private final List<InMemoryGroup> groups;
+
+    private BenchmarkRealm(List<InMemoryGroup> groups) {
+        this.groups = groups;
+        groups.forEach(groupProvider::add);
+    }
+
+    /**
+     * Creates {@code size} groups arranged breadth-first in a tree that is at
+     * most {@code depth} levels deep.
+     */
+    public static BenchmarkRealm create(int size, int depth) {
+        int fanout = Math.max(2, (int) Math.ceil(Math.pow(size, 1.0 / Math.max(1, depth))));
+        List<InMemoryGroup> groups = new ArrayList<>(size);
+        List<InMemoryGroup> level = new ArrayList<>();
+
+        for (int i = 0; i < fanout && groups.size() < size; i++) {
+            level.add(newGroup(groups, null));
+        }
+
+        for (int d = 1; d < depth && groups.size() < size; d++) {
+            List<InMemoryGroup> next = new ArrayList<>();
+            for (InMemoryGroup parent : level) {
+                for (int i = 0; i < fanout && groups.size() < size; i++) {
+                    next.add(newGroup(groups, parent));
+                }
+            }
+            level = next;
+        }
+
+        while (groups.size() < size) {
+            newGroup(groups, null);
+        }
+
+        return new BenchmarkRealm(groups);
+    }
+
+    /**
+     * Adds a group below {@code parent}, or a top-level group when it is
+     * {@code null}, after the realm was created.
+     */
+    public InMemoryGroup addGroup(InMemoryGroup parent) {
+        InMemoryGroup group = newGroup(groups, parent);
+        groupProvider.add(group);
+        return group;
+    }
+
+    private static InMemoryGroup newGroup(List<InMemoryGroup> groups, InMemoryGroup parent) {
+        int index = groups.size();
+        InMemoryGroup group = new InMemoryGroup("id-" + index, "g" + index, parent);
+        group.setSingleAttribute(GROUP_CODE_ATTRIBUTE, "c" + index);
+        groups.add(group);
+        return group;
+    }
+
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    public ResourceServer getResourceServer() {
+        return resourceServer;
+    }
+
+    public InMemoryGroupProvider getGroupProvider() {
+        return groupProvider;
+    }
+
+    public List<InMemoryGroup> getGroups() {
+        return groups;
+    }
+
+    public InMemoryGroup getGroup(Random random) {
+        return groups.get(random.nextInt(groups.size()));
+    }
+
+    public static String identifier(InMemoryGroup group, GroupMatchTarget target) {
+        switch (target) {
+            case ID:
+                return group.getId();
+            case NAME:
+                return group.getName();
+            case PATH:
+                return group.getPath();
+            case ATTRIBUTE:
+                return group.getFirstAttribute(GROUP_CODE_ATTRIBUTE);
+            default:
+                throw new IllegalArgumentException(target.name());
+        }
+    }
+
+    public static String pattern(ResourceMatchTarget target) {
+        switch (target) {
+            case NAME:
+                return "resource:(.+)";
+            case URI:
+                return "/api/groups/(.+)/items";
+            case ATTRIBUTE:
+                return "group:(.+)";
+            default:
+                throw new IllegalArgumentException(target.name());
+        }
+    }
+
+    public InMemoryResource resource(String id, InMemoryGroup group, ResourceMatchTarget resourceMatchTarget,
+            GroupMatchTarget groupMatchTarget, boolean withPattern) {
+        String identifier = identifier(group, groupMatchTarget);
+        InMemoryResource resource;
+
+        switch (resourceMatchTarget) {
+            case NAME:
+                resource = new InMemoryResource(id, withPattern ? "resource:" + identifier : identifier,
+                        resourceServer);
+                break;
+            case URI:
+                resource = new InMemoryResource(id, id, resourceServer);
+                resource.updateUris(Collections.singleton(
+                        withPattern ? "/api/groups/" + identifier + "/items" : identifier));
+                break;
+            case ATTRIBUTE:
+                resource = new InMemoryResource(id, id, resourceServer);
+                resource.setAttribute(GROUP_CODE_ATTRIBUTE,
+                        Collections.singletonList(withPattern ? "group:" + identifier : identifier));
+                break;
+            default:
+                throw new IllegalArgumentException(resourceMatchTarget.name());
+        }
+
+        return resource;
+    }
+
+    public InMemoryPolicy policy(String id, ResourceMatchTarget resourceMatchTarget,
+            GroupMatchTarget groupMatchTarget, boolean withPattern) {
+        InMemoryPolicy policy = new InMemoryPolicy(id, POLICY_TYPE, resourceServer);
+        Map<String, String> config = new HashMap<>();
+
+        config.put("groupsClaim", GROUPS_CLAIM);
+        config.put("resourceMatchTarget", resourceMatchTarget.name());
+        config.put("groupMatchTarget", groupMatchTarget.name());
+        config.put("groupMatchAttributeName", GROUP_CODE_ATTRIBUTE);
+        if (withPattern) {
+            config.put("pattern", pattern(resourceMatchTarget));
+        }
+
+        policy.setConfig(config);
+
+        return policy;
+    }
+
+    /**
+     * Returns {@code size} random group paths, including a path at or below
+     * {@code member} when it is not {@code null}.
+     */
+    public List<String> claim(Random random, int size, InMemoryGroup member) {
+        Set<String> paths = new LinkedHashSet<>();
+
+        if (member != null) {
+            paths.add(descendantOrSelf(random, member).getPath());
+        }
+
+        while (paths.size() < Math.min(size, groups.size())) {
+            paths.add(getGroup(random).getPath());
+        }
+
+        return new ArrayList<>(paths);
+    }
+
+    private static InMemoryGroup descendantOrSelf(Random random, InMemoryGroup group) {
+        List<InMemoryGroup> children = new ArrayList<>();
+        group.getSubGroupsStream().forEach(child -> children.add((InMemoryGroup) child));
+
+        if (children.isEmpty() || random.nextBoolean()) {
+            return group;
+        }
+
+        return descendantOrSelf(random, children.get(random.nextInt(children.size())));
+    }
+}
@@ -0,0 +1,139 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipPolicyProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures whole authorization requests that evaluate the policy for several
+ * permissions in one session, which is what the bulk resolution of a resource
+ * server is meant for. A threshold of {@code 0} disables it, so comparing the
+ * thresholds shows which request sizes it pays off for. The resource cache is
+ * disabled so that every request resolves its groups. Group queries cost no
+ * round trip here, so the results are an upper bound of the bulk overhead.
+ *
+ * <p>
+ * Build with {@code mvn install} in the project root followed by
+ * {@code mvn package} in this module, then run for example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar BulkEvaluationBenchmark -p serverResources=1000
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkEvaluationBenchmark {
+    private static final int REALM_SIZE = 10000;
+    private static final int DEPTH = 4;
+    private static final int CLAIM_SIZE = 10;
+    private static final int REQUESTS = 256;
+
+    @Param({ "0", "2", "8" })
+    public int bulkEvaluationThreshold;
+
+    @Param({ "100", "1000" })
+    public int serverResources;
+
+    @Param({ "1", "10", "100" })
+    public int permissionsPerRequest;
+
+    @Param({ "ID", "NAME", "PATH" })
+    public GroupMatchTarget groupMatchTarget;
+
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private GroupMembershipPolicyProviderFactory factory;
+    private PolicyProvider provider;
+    private InMemoryEvaluation[][] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkRealm realm = BenchmarkRealm.create(REALM_SIZE, DEPTH);
+        Random random = new Random(42);
+
+        List<InMemoryResource> resources = new ArrayList<>(serverResources);
+        for (int i = 0; i < serverResources; i++) {
+            resources.add(realm.resource("resource-" + i, realm.getGroup(random), ResourceMatchTarget.NAME,
+                    groupMatchTarget, false));
+        }
+
+        KeycloakSession session = InMemoryModels.session(realm.getGroupProvider(), sessionAttributes,
+                InMemoryModels.storeFactory(resources));
+        AuthorizationProvider authorization = new AuthorizationProvider(session, realm.getRealm(), null);
+
+        factory = new GroupMembershipPolicyProviderFactory();
+        factory.init(new MapConfigScope()
+                .with("resourceCacheSize", 0)
+                .with("bulkEvaluationThreshold", bulkEvaluationThreshold));
+        provider = factory.create(session);
+
+        InMemoryPolicy policy = realm.policy("policy", ResourceMatchTarget.NAME, groupMatchTarget, false);
+        Map<String, List<String>> userGroups = new HashMap<>();
+        InMemoryUserRealm userRealm = new InMemoryUserRealm(userGroups);
+
+        requests = new InMemoryEvaluation[REQUESTS][permissionsPerRequest];
+        for (int i = 0; i < REQUESTS; i++) {
+            List<String> claim = realm.claim(random, CLAIM_SIZE, realm.getGroup(random));
+            Map<String, Collection<String>> claims = new HashMap<>();
+            claims.put(BenchmarkRealm.GROUPS_CLAIM, claim);
+            userGroups.put("user-" + i, claim);
+            InMemoryIdentity identity = new InMemoryIdentity("user-" + i, claims);
+
+            int offset = random.nextInt(serverResources);
+            for (int j = 0; j < permissionsPerRequest; j++) {
+                InMemoryResource resource = resources.get((offset + j) % serverResources);
+                requests[i][j] = new InMemoryEvaluation(authorization, policy, resource, identity, userRealm);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public int evaluateRequest() {
+        InMemoryEvaluation[] request = requests[next++ & (REQUESTS - 1)];
+        int granted = 0;
+
+        sessionAttributes.clear();
+        for (InMemoryEvaluation evaluation : request) {
+            evaluation.reset();
+            provider.evaluate(evaluation);
+            if (evaluation.isGranted()) {
+                granted++;
+            }
+        }
+
+        return granted;
+    }
+}
@@ -0,0 +1,117 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records lock contention of the load harness threads with Flight Recorder:
+ * contended monitor enters, parks on {@code java.util.concurrent} locks and,
+ * on runtimes with virtual threads, virtual threads pinned to their carrier.
+ * Events of other threads are ignored, so the numbers only cover the work
+ * being measured.
+ */
+final class ContentionRecorder {
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String THREAD_PARK = "jdk.ThreadPark";
+    private static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+
+    private final String threadPrefix;
+    private final Recording recording = new Recording();
+
+    private ContentionRecorder(String threadPrefix) {
+        this.threadPrefix = threadPrefix;
+        recording.enable(MONITOR_ENTER).withThreshold(Duration.ZERO);
+        recording.enable(THREAD_PARK).withThreshold(Duration.ZERO);
+        recording.enable(VIRTUAL_THREAD_PINNED).withThreshold(Duration.ZERO);
+        recording.setToDisk(true);
+    }
+
+    static ContentionRecorder start(String threadPrefix) {
+        ContentionRecorder recorder = new ContentionRecorder(threadPrefix);
+        recorder.recording.start();
+        return recorder;
+    }
+
+    Contention stop() throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("load-harness", ".jfr");
+
+        try {
+            recording.dump(file);
+            return read(file);
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Contention read(Path file) throws IOException {
+        Contention contention = new Contention();
+
+        try (RecordingFile events = new RecordingFile(file)) {
+            while (events.hasMoreEvents()) {
+                RecordedEvent event = events.readEvent();
+                RecordedThread thread = event.getThread();
+                if (thread == null || thread.getJavaName() == null
+                        || !thread.getJavaName().startsWith(threadPrefix)) {
+                    continue;
+                }
+
+                long nanos = event.getDuration().toNanos();
+                switch (event.getEventType().getName()) {
+                    case MONITOR_ENTER:
+                        contention.monitorEnters++;
+                        contention.monitorNanos += nanos;
+                        contention.blame(event.getClass("monitorClass"), nanos);
+                        break;
+                    case THREAD_PARK:
+                        contention.parks++;
+                        contention.parkNanos += nanos;
+                        contention.blame(event.getClass("parkedClass"), nanos);
+                        break;
+                    case VIRTUAL_THREAD_PINNED:
+                        contention.pinned++;
+                        break;
+                }
+            }
+        }
+
+        return contention;
+    }
+
+    static final class Contention {
+        long monitorEnters;
+        long monitorNanos;
+        long parks;
+        long parkNanos;
+        long pinned;
+        private final Map<String, Long> blockedNanos = new HashMap<>();
+
+        private void blame(RecordedClass lock, long nanos) {
+            if (lock != null) {
+                blockedNanos.merge(lock.getName(), nanos, Long::sum);
+            }
+        }
+
+        /**
+         * Returns the class of the lock threads were blocked on the longest, or
+         * {@code -} if they were never blocked.
+         */
+        String getMostContended() {
+            return blockedNanos.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse("-");
+        }
+    }
+}
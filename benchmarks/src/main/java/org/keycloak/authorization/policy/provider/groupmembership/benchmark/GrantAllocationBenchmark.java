@@ -0,0 +1,127 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipPolicyProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures grant decisions for identities presenting a token already seen,
+ * meant to be run with the GC profiler to check how much a decision
+ * allocates:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar GrantAllocationBenchmark -prof gc
+ * </pre>
+ *
+ * The {@code gc.alloc.rate.norm} metric is the number of bytes allocated per
+ * decision. With {@code indexed} set to {@code false} every resource maps to a
+ * group created after the realm group index was built, so membership is
+ * tested against the group ancestry instead of the index ordinals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrantAllocationBenchmark {
+    private static final int EVALUATIONS = 1024;
+
+    @Param({ "true", "false" })
+    public boolean resourceCache;
+
+    @Param({ "true", "false" })
+    public boolean indexed;
+
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private GroupMembershipPolicyProviderFactory factory;
+    private PolicyProvider provider;
+    private InMemoryEvaluation[] evaluations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkRealm realm = BenchmarkRealm.create(10000, 4);
+        KeycloakSession session = InMemoryModels.session(realm.getGroupProvider(), sessionAttributes);
+        AuthorizationProvider authorization = new AuthorizationProvider(session, realm.getRealm(), null);
+
+        factory = new GroupMembershipPolicyProviderFactory();
+        factory.init(new MapConfigScope().with("resourceCacheSize", resourceCache ? 10000 : 0));
+        provider = factory.create(session);
+
+        InMemoryPolicy policy = realm.policy("policy", ResourceMatchTarget.NAME, GroupMatchTarget.ID, false);
+        Random random = new Random(42);
+        InMemoryUserRealm userRealm = new InMemoryUserRealm(Collections.<String, List<String>>emptyMap());
+        String expiry = String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+                + TimeUnit.DAYS.toSeconds(1));
+
+        evaluations = new InMemoryEvaluation[EVALUATIONS];
+        for (int i = 0; i < EVALUATIONS; i++) {
+            InMemoryGroup group = realm.getGroup(random);
+            Map<String, Collection<String>> claims = new HashMap<>();
+            claims.put(BenchmarkRealm.GROUPS_CLAIM, realm.claim(random, 10, group));
+            claims.put("jti", Collections.singletonList("token-" + i));
+            claims.put("exp", Collections.singletonList(expiry));
+
+            evaluations[i] = new InMemoryEvaluation(authorization, policy,
+                    realm.resource("resource-" + i, group, ResourceMatchTarget.NAME, GroupMatchTarget.ID, false),
+                    new InMemoryIdentity("user-" + i, claims), userRealm);
+        }
+
+        // builds the realm group index
+        evaluate();
+
+        if (!indexed) {
+            for (int i = 0; i < EVALUATIONS; i++) {
+                InMemoryGroup group = realm.addGroup(realm.getGroup(random));
+                Map<String, Collection<String>> claims = new HashMap<>();
+                claims.put(BenchmarkRealm.GROUPS_CLAIM, realm.claim(random, 10, group));
+                claims.put("jti", Collections.singletonList("late-token-" + i));
+                claims.put("exp", Collections.singletonList(expiry));
+
+                evaluations[i] = new InMemoryEvaluation(authorization, policy,
+                        realm.resource("late-resource-" + i, group, ResourceMatchTarget.NAME, GroupMatchTarget.ID,
+                                false),
+                        new InMemoryIdentity("user-" + i, claims), userRealm);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        InMemoryEvaluation evaluation = evaluations[next++ & (EVALUATIONS - 1)];
+        sessionAttributes.clear();
+        evaluation.reset();
+        provider.evaluate(evaluation);
+        return evaluation.isGranted();
+    }
+}
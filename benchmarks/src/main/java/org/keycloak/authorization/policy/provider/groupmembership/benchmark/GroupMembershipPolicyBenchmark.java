@@ -0,0 +1,123 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipPolicyProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code GroupMembershipPolicyProvider.evaluate} for a single
+ * permission per authorization request, across every resource and group match
+ * target, with and without a pattern. Half of the evaluated identities are
+ * members of the resource's group, the other half are not.
+ *
+ * <p>
+ * Build with {@code mvn install} in the project root followed by
+ * {@code mvn package} in this module, then run for example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar GroupMembershipPolicyBenchmark -p realmSize=1000000 -p depth=6
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupMembershipPolicyBenchmark {
+    private static final int EVALUATIONS = 1024;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int realmSize;
+
+    @Param({ "3", "8" })
+    public int depth;
+
+    @Param({ "10", "300" })
+    public int claimSize;
+
+    @Param({ "NAME", "URI", "ATTRIBUTE" })
+    public ResourceMatchTarget resourceMatchTarget;
+
+    @Param({ "ID", "NAME", "PATH", "ATTRIBUTE" })
+    public GroupMatchTarget groupMatchTarget;
+
+    @Param({ "true", "false" })
+    public boolean withPattern;
+
+    @Param({ "true", "false" })
+    public boolean resourceCache;
+
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private GroupMembershipPolicyProviderFactory factory;
+    private PolicyProvider provider;
+    private InMemoryEvaluation[] evaluations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkRealm realm = BenchmarkRealm.create(realmSize, depth);
+        KeycloakSession session = InMemoryModels.session(realm.getGroupProvider(), sessionAttributes);
+        AuthorizationProvider authorization = new AuthorizationProvider(session, realm.getRealm(), null);
+
+        factory = new GroupMembershipPolicyProviderFactory();
+        factory.init(new MapConfigScope().with("resourceCacheSize", resourceCache ? 10000 : 0));
+        provider = factory.create(session);
+
+        InMemoryPolicy policy = realm.policy("policy", resourceMatchTarget, groupMatchTarget, withPattern);
+        Random random = new Random(42);
+        Map<String, List<String>> userGroups = new HashMap<>();
+        InMemoryUserRealm userRealm = new InMemoryUserRealm(userGroups);
+
+        evaluations = new InMemoryEvaluation[EVALUATIONS];
+        for (int i = 0; i < EVALUATIONS; i++) {
+            InMemoryGroup group = realm.getGroup(random);
+            InMemoryResource resource = realm.resource("resource-" + i, group, resourceMatchTarget,
+                    groupMatchTarget, withPattern);
+            List<String> claim = realm.claim(random, claimSize, i % 2 == 0 ? group : null);
+            Map<String, Collection<String>> claims = new HashMap<>();
+            claims.put(BenchmarkRealm.GROUPS_CLAIM, claim);
+            userGroups.put("user-" + i, claim);
+
+            evaluations[i] = new InMemoryEvaluation(authorization, policy, resource,
+                    new InMemoryIdentity("user-" + i, claims), userRealm);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        InMemoryEvaluation evaluation = evaluations[next++ & (EVALUATIONS - 1)];
+        sessionAttributes.clear();
+        evaluation.reset();
+        provider.evaluate(evaluation);
+        return evaluation.isGranted();
+    }
+}
@@ -0,0 +1,106 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collections;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.Decision.Effect;
+import org.keycloak.authorization.attribute.Attributes;
+import org.keycloak.authorization.identity.Identity;
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.permission.ResourcePermission;
+import org.keycloak.authorization.policy.evaluation.Evaluation;
+import org.keycloak.authorization.policy.evaluation.EvaluationContext;
+import org.keycloak.authorization.policy.evaluation.Realm;
+
+/**
+ * Single permission evaluation. The effect is reset by {@link #reset()} so that
+ * an instance can be reused across benchmark invocations.
+ */
+public class InMemoryEvaluation implements Evaluation, EvaluationContext {
+    private final AuthorizationProvider authorization;
+    private final Policy policy;
+    private final ResourcePermission permission;
+    private final Identity identity;
+    private final Realm realm;
+    private Effect effect;
+
+    public InMemoryEvaluation(AuthorizationProvider authorization, Policy policy, Resource resource,
+            Identity identity, Realm realm) {
+        this.authorization = authorization;
+        this.policy = policy;
+        this.permission = new ResourcePermission(resource, Collections.emptyList(), resource.getResourceServer());
+        this.identity = identity;
+        this.realm = realm;
+    }
+
+    public void reset() {
+        effect = null;
+    }
+
+    public boolean isGranted() {
+        return effect == Effect.PERMIT;
+    }
+
+    @Override
+    public ResourcePermission getPermission() {
+        return permission;
+    }
+
+    @Override
+    public EvaluationContext getContext() {
+        return this;
+    }
+
+    @Override
+    public Identity getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public Attributes getAttributes() {
+        return identity.getAttributes();
+    }
+
+    @Override
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public Realm getRealm() {
+        return realm;
+    }
+
+    @Override
+    public AuthorizationProvider getAuthorizationProvider() {
+        return authorization;
+    }
+
+    @Override
+    public void grant() {
+        effect = Effect.PERMIT;
+    }
+
+    @Override
+    public void deny() {
+        effect = Effect.DENY;
+    }
+
+    @Override
+    public void denyIfNoEffect() {
+        if (effect == null) {
+            deny();
+        }
+    }
+
+    @Override
+    public Effect getEffect() {
+        return effect;
+    }
+
+    @Override
+    public void setEffect(Effect effect) {
+        this.effect = effect;
+    }
+}
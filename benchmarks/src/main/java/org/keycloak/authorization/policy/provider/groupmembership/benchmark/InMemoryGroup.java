@@ -0,0 +1,143 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RoleModel;
+
+public class InMemoryGroup implements GroupModel {
+    private final String id;
+    private final String path;
+    private final List<GroupModel> subGroups = new ArrayList<>();
+    private final Map<String, List<String>> attributes = new HashMap<>();
+    private String name;
+    private GroupModel parent;
+
+    public InMemoryGroup(String id, String name, GroupModel parent) {
+        this.id = id;
+        this.name = name;
+        this.parent = parent;
+        this.path = parent == null ? "/" + name : ((InMemoryGroup) parent).getPath() + "/" + name;
+
+        if (parent != null) {
+            parent.addChild(this);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void setSingleAttribute(String name, String value) {
+        attributes.put(name, Collections.singletonList(value));
+    }
+
+    @Override
+    public void setAttribute(String name, List<String> values) {
+        attributes.put(name, values);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getFirstAttribute(String name) {
+        List<String> values = attributes.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Stream<String> getAttributeStream(String name) {
+        List<String> values = attributes.get(name);
+        return values == null ? Stream.empty() : values.stream();
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public GroupModel getParent() {
+        return parent;
+    }
+
+    @Override
+    public String getParentId() {
+        return parent == null ? null : parent.getId();
+    }
+
+    @Override
+    public Stream<GroupModel> getSubGroupsStream() {
+        return subGroups.stream();
+    }
+
+    @Override
+    public void setParent(GroupModel group) {
+        this.parent = group;
+    }
+
+    @Override
+    public void addChild(GroupModel subGroup) {
+        subGroups.add(subGroup);
+    }
+
+    @Override
+    public void removeChild(GroupModel subGroup) {
+        subGroups.remove(subGroup);
+    }
+
+    @Override
+    public Stream<RoleModel> getRealmRoleMappingsStream() {
+        return Stream.empty();
+    }
+
+    @Override
+    public Stream<RoleModel> getClientRoleMappingsStream(ClientModel app) {
+        return Stream.empty();
+    }
+
+    @Override
+    public boolean hasRole(RoleModel role) {
+        return false;
+    }
+
+    @Override
+    public void grantRole(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getRoleMappingsStream() {
+        return Stream.empty();
+    }
+
+    @Override
+    public void deleteRoleMapping(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,140 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+
+/**
+ * Group store of a single realm kept in plain maps. Every call that would hit
+ * the database in a real deployment is counted, so benchmarks can report how
+ * many store round trips a decision costs.
+ */
+public class InMemoryGroupProvider implements GroupProvider {
+    private final Map<String, InMemoryGroup> groupsById = new LinkedHashMap<>();
+    private final Map<String, List<GroupModel>> groupsByName = new HashMap<>();
+    private final LongAdder queries = new LongAdder();
+
+    public InMemoryGroup add(InMemoryGroup group) {
+        groupsById.put(group.getId(), group);
+        groupsByName.computeIfAbsent(group.getName(), name -> new ArrayList<>()).add(group);
+        return group;
+    }
+
+    public int size() {
+        return groupsById.size();
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public GroupModel getGroupById(RealmModel realm, String id) {
+        queries.increment();
+        return groupsById.get(id);
+    }
+
+    @Override
+    public Stream<GroupModel> searchForGroupByNameStream(RealmModel realm, String search, Boolean exact,
+            Integer firstResult, Integer maxResults) {
+        queries.increment();
+
+        if (Boolean.TRUE.equals(exact)) {
+            List<GroupModel> groups = groupsByName.get(search);
+            return groups == null ? Stream.empty() : groups.stream();
+        }
+
+        return groupsById.values().stream().filter(group -> group.getName().contains(search)).map(GroupModel.class::cast);
+    }
+
+    @Override
+    public Stream<GroupModel> searchGroupsByAttributes(RealmModel realm, Map<String, String> attributes,
+            Integer firstResult, Integer maxResults) {
+        queries.increment();
+        return groupsById.values().stream()
+                .filter(group -> attributes.entrySet().stream()
+                        .allMatch(e -> Objects.equals(e.getValue(), group.getFirstAttribute(e.getKey()))))
+                .map(GroupModel.class::cast);
+    }
+
+    @Override
+    public Stream<GroupModel> getGroupsStream(RealmModel realm) {
+        queries.increment();
+        return groupsById.values().stream().map(GroupModel.class::cast);
+    }
+
+    @Override
+    public Stream<GroupModel> getGroupsStream(RealmModel realm, Stream<String> ids, String search, Integer first,
+            Integer max) {
+        queries.increment();
+        return ids.map(groupsById::get).filter(Objects::nonNull).map(GroupModel.class::cast);
+    }
+
+    @Override
+    public Long getGroupsCount(RealmModel realm, Boolean onlyTopGroups) {
+        return Boolean.TRUE.equals(onlyTopGroups)
+                ? groupsById.values().stream().filter(group -> group.getParentId() == null).count()
+                : (long) groupsById.size();
+    }
+
+    @Override
+    public Long getGroupsCountByNameContaining(RealmModel realm, String search) {
+        return groupsById.values().stream().filter(group -> group.getName().contains(search)).count();
+    }
+
+    @Override
+    public Stream<GroupModel> getGroupsByRoleStream(RealmModel realm, RoleModel role, Integer firstResult,
+            Integer maxResults) {
+        return Stream.empty();
+    }
+
+    @Override
+    public Stream<GroupModel> getTopLevelGroupsStream(RealmModel realm, String search, Boolean exact,
+            Integer firstResult, Integer maxResults) {
+        queries.increment();
+
+        if (Boolean.TRUE.equals(exact)) {
+            List<GroupModel> groups = groupsByName.get(search);
+            return groups == null ? Stream.empty()
+                    : groups.stream().filter(group -> group.getParentId() == null);
+        }
+
+        return groupsById.values().stream().filter(group -> group.getParentId() == null)
+                .filter(group -> search == null || group.getName().contains(search))
+                .map(GroupModel.class::cast);
+    }
+
+    @Override
+    public GroupModel createGroup(RealmModel realm, String id, String name, GroupModel toParent) {
+        return add(new InMemoryGroup(id, name, toParent));
+    }
+
+    @Override
+    public boolean removeGroup(RealmModel realm, GroupModel group) {
+        return groupsById.remove(group.getId()) != null;
+    }
+
+    @Override
+    public void moveGroup(RealmModel realm, GroupModel group, GroupModel toParent) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addTopLevelGroup(RealmModel realm, GroupModel subGroup) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,27 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.keycloak.authorization.attribute.Attributes;
+import org.keycloak.authorization.identity.Identity;
+
+public class InMemoryIdentity implements Identity {
+    private final String id;
+    private final Attributes attributes;
+
+    public InMemoryIdentity(String id, Map<String, Collection<String>> claims) {
+        this.id = id;
+        this.attributes = Attributes.from(claims);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Attributes getAttributes() {
+        return attributes;
+    }
+}
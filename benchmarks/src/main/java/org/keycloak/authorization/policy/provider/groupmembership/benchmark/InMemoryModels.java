@@ -0,0 +1,134 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.store.ResourceStore;
+import org.keycloak.authorization.store.StoreFactory;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Proxies for the Keycloak interfaces that are too large to implement by hand
+ * but of which the policy provider only uses a handful of methods. Any other
+ * call fails, which keeps the benchmarks honest about what they exercise.
+ */
+public final class InMemoryModels {
+    private InMemoryModels() {
+    }
+
+    public static RealmModel realm(String id, String name) {
+        return (RealmModel) Proxy.newProxyInstance(RealmModel.class.getClassLoader(),
+                new Class<?>[] { RealmModel.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getName":
+                            return name;
+                        case "hashCode":
+                            return id.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryRealm[" + name + "]";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    public static KeycloakSession session(GroupProvider groupProvider, Map<String, Object> attributes) {
+        return session(groupProvider, attributes, null);
+    }
+
+    /**
+     * Returns a session whose authorization store is {@code storeFactory},
+     * for benchmarks that load resources from the store.
+     */
+    public static KeycloakSession session(GroupProvider groupProvider, Map<String, Object> attributes,
+            StoreFactory storeFactory) {
+        return (KeycloakSession) Proxy.newProxyInstance(KeycloakSession.class.getClassLoader(),
+                new Class<?>[] { KeycloakSession.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "groups":
+                            return groupProvider;
+                        case "getAttribute":
+                            Object value = attributes.get((String) args[0]);
+                            if (args.length == 2) {
+                                return ((Class<?>) args[1]).isInstance(value) ? value : null;
+                            }
+                            return value;
+                        case "getAttributeOrDefault":
+                            return attributes.getOrDefault((String) args[0], args[1]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        case "removeAttribute":
+                            return attributes.remove((String) args[0]);
+                        case "getAttributes":
+                            return attributes;
+                        case "getProvider":
+                            return args.length == 1 && args[0] == StoreFactory.class ? storeFactory : null;
+                        case "close":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemorySession";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Returns an authorization store whose resource store holds the given
+     * resources. Only paged and unpaged lookups by resource server are
+     * supported.
+     */
+    public static StoreFactory storeFactory(List<? extends Resource> resources) {
+        ResourceStore resourceStore = (ResourceStore) Proxy.newProxyInstance(ResourceStore.class.getClassLoader(),
+                new Class<?>[] { ResourceStore.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByResourceServer":
+                            return List.copyOf(resources);
+                        case "find":
+                            int first = args[2] == null ? 0 : Math.min((Integer) args[2], resources.size());
+                            int max = args[3] == null || (Integer) args[3] < 0 ? Integer.MAX_VALUE : (Integer) args[3];
+                            return List.copyOf(resources.subList(first,
+                                    (int) Math.min((long) first + max, resources.size())));
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryResourceStore";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        return (StoreFactory) Proxy.newProxyInstance(StoreFactory.class.getClassLoader(),
+                new Class<?>[] { StoreFactory.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getResourceStore":
+                            return resourceStore;
+                        case "close":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryStoreFactory";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,150 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.authorization.model.Scope;
+import org.keycloak.representations.idm.authorization.DecisionStrategy;
+import org.keycloak.representations.idm.authorization.Logic;
+
+public class InMemoryPolicy implements Policy {
+    private final String id;
+    private final String type;
+    private final ResourceServer resourceServer;
+    private Map<String, String> config = new HashMap<>();
+    private String name;
+    private String description;
+
+    public InMemoryPolicy(String id, String type, ResourceServer resourceServer) {
+        this.id = id;
+        this.type = type;
+        this.name = id;
+        this.resourceServer = resourceServer;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public DecisionStrategy getDecisionStrategy() {
+        return DecisionStrategy.UNANIMOUS;
+    }
+
+    @Override
+    public void setDecisionStrategy(DecisionStrategy decisionStrategy) {
+    }
+
+    @Override
+    public Logic getLogic() {
+        return Logic.POSITIVE;
+    }
+
+    @Override
+    public void setLogic(Logic logic) {
+    }
+
+    @Override
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    @Override
+    public void setConfig(Map<String, String> config) {
+        this.config = config;
+    }
+
+    @Override
+    public void removeConfig(String name) {
+        config.remove(name);
+    }
+
+    @Override
+    public void putConfig(String name, String value) {
+        config.put(name, value);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public ResourceServer getResourceServer() {
+        return resourceServer;
+    }
+
+    @Override
+    public Set<Policy> getAssociatedPolicies() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Resource> getResources() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Scope> getScopes() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public String getOwner() {
+        return null;
+    }
+
+    @Override
+    public void setOwner(String owner) {
+    }
+
+    @Override
+    public void addScope(Scope scope) {
+    }
+
+    @Override
+    public void removeScope(Scope scope) {
+    }
+
+    @Override
+    public void addAssociatedPolicy(Policy associatedPolicy) {
+    }
+
+    @Override
+    public void removeAssociatedPolicy(Policy associatedPolicy) {
+    }
+
+    @Override
+    public void addResource(Resource resource) {
+    }
+
+    @Override
+    public void removeResource(Resource resource) {
+    }
+}
@@ -0,0 +1,131 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.authorization.model.Scope;
+
+public class InMemoryResource implements Resource {
+    private final String id;
+    private final ResourceServer resourceServer;
+    private final Map<String, List<String>> attributes = new HashMap<>();
+    private String name;
+    private Set<String> uris = Collections.emptySet();
+
+    public InMemoryResource(String id, String name, ResourceServer resourceServer) {
+        this.id = id;
+        this.name = name;
+        this.resourceServer = resourceServer;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return name;
+    }
+
+    @Override
+    public void setDisplayName(String name) {
+    }
+
+    @Override
+    public Set<String> getUris() {
+        return uris;
+    }
+
+    @Override
+    public void updateUris(Set<String> uris) {
+        this.uris = uris;
+    }
+
+    @Override
+    public String getType() {
+        return null;
+    }
+
+    @Override
+    public void setType(String type) {
+    }
+
+    @Override
+    public List<Scope> getScopes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getIconUri() {
+        return null;
+    }
+
+    @Override
+    public void setIconUri(String iconUri) {
+    }
+
+    @Override
+    public ResourceServer getResourceServer() {
+        return resourceServer;
+    }
+
+    @Override
+    public String getOwner() {
+        return resourceServer.getClientId();
+    }
+
+    @Override
+    public boolean isOwnerManagedAccess() {
+        return false;
+    }
+
+    @Override
+    public void setOwnerManagedAccess(boolean ownerManagedAccess) {
+    }
+
+    @Override
+    public void updateScopes(Set<Scope> scopes) {
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String getSingleAttribute(String name) {
+        List<String> values = attributes.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public List<String> getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, List<String> value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+}
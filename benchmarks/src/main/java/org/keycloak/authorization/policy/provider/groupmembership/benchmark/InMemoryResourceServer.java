@@ -0,0 +1,50 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.representations.idm.authorization.DecisionStrategy;
+import org.keycloak.representations.idm.authorization.PolicyEnforcementMode;
+
+public class InMemoryResourceServer implements ResourceServer {
+    private final String id;
+
+    public InMemoryResourceServer(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isAllowRemoteResourceManagement() {
+        return false;
+    }
+
+    @Override
+    public void setAllowRemoteResourceManagement(boolean allowRemoteResourceManagement) {
+    }
+
+    @Override
+    public PolicyEnforcementMode getPolicyEnforcementMode() {
+        return PolicyEnforcementMode.ENFORCING;
+    }
+
+    @Override
+    public void setPolicyEnforcementMode(PolicyEnforcementMode enforcementMode) {
+    }
+
+    @Override
+    public void setDecisionStrategy(DecisionStrategy decisionStrategy) {
+    }
+
+    @Override
+    public DecisionStrategy getDecisionStrategy() {
+        return DecisionStrategy.UNANIMOUS;
+    }
+
+    @Override
+    public String getClientId() {
+        return id;
+    }
+}
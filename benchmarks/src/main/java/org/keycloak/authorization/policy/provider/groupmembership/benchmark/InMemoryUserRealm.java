@@ -0,0 +1,59 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.keycloak.authorization.policy.evaluation.Realm;
+
+/**
+ * Evaluation-side realm view resolving user groups from a fixed map of user id
+ * to group paths.
+ */
+public class InMemoryUserRealm implements Realm {
+    private final Map<String, List<String>> userGroups;
+
+    public InMemoryUserRealm(Map<String, List<String>> userGroups) {
+        this.userGroups = userGroups;
+    }
+
+    @Override
+    public boolean isUserInGroup(String id, String groupId, boolean checkParent) {
+        return false;
+    }
+
+    @Override
+    public boolean isUserInRealmRole(String id, String roleName) {
+        return false;
+    }
+
+    @Override
+    public boolean isUserInClientRole(String id, String clientId, String roleName) {
+        return false;
+    }
+
+    @Override
+    public boolean isGroupInRole(String id, String role) {
+        return false;
+    }
+
+    @Override
+    public List<String> getUserRealmRoles(String id) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getUserClientRoles(String id, String clientId) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getUserGroups(String id) {
+        return userGroups.getOrDefault(id, Collections.emptyList());
+    }
+
+    @Override
+    public Map<String, List<String>> getUserAttributes(String id) {
+        return Collections.emptyMap();
+    }
+}
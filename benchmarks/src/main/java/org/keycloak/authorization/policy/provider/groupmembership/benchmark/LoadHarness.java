@@ -0,0 +1,348 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the {@link LoadWorkload} from a growing number of request threads,
+ * platform and virtual, against one shared provider instance. For every
+ * thread count it reports the request throughput, the p50 and p99 request
+ * latency and the lock contention of the request threads, and it exits with
+ * status 1 when adding threads makes throughput regress:
+ *
+ * <ul>
+ * <li>throughput falls below {@code --min-retention} of the best throughput
+ * with fewer threads, or</li>
+ * <li>throughput falls below {@code --min-speedup} times the ideal speedup
+ * over one thread, the ideal being capped by the available processors.</li>
+ * </ul>
+ *
+ * Each thread mode starts with an unmeasured run of
+ * {@code --initial-warm-up} seconds, so that measurements start with the
+ * request path compiled and the caches filled. Virtual threads are only used
+ * on runtimes providing them, other runtimes measure platform threads alone. Build as the JMH benchmarks, then run for
+ * example:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     org.keycloak.authorization.policy.provider.groupmembership.benchmark.LoadHarness \
+ *     --threads 1,4,16,64,256 --duration 10
+ * </pre>
+ */
+public class LoadHarness {
+    private static final String THREAD_PREFIX = "load-harness-";
+    private static final int LATENCY_SAMPLES = 1 << 16;
+
+    private int[] threads = { 1, 2, 4, 8, 16, 32, 64, 128, 256 };
+    private List<String> modes = Arrays.asList("platform", "virtual");
+    private long initialWarmUpMillis = TimeUnit.SECONDS.toMillis(15);
+    private long warmUpMillis = TimeUnit.SECONDS.toMillis(2);
+    private long durationMillis = TimeUnit.SECONDS.toMillis(5);
+    private int groups = 10000;
+    private int depth = 4;
+    private int users = 10000;
+    private int resources = 1000;
+    private double minRetention = 0.8;
+    private double minSpeedup = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        LoadHarness harness = new LoadHarness();
+        harness.parse(args);
+        System.exit(harness.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--threads":
+                    threads = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).sorted().toArray();
+                    break;
+                case "--modes":
+                    modes = Arrays.asList(value.toLowerCase(Locale.ROOT).split(","));
+                    break;
+                case "--initial-warm-up":
+                    initialWarmUpMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+                    break;
+                case "--warm-up":
+                    warmUpMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+                    break;
+                case "--duration":
+                    durationMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+                    break;
+                case "--groups":
+                    groups = Integer.parseInt(value);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(value);
+                    break;
+                case "--users":
+                    users = Integer.parseInt(value);
+                    break;
+                case "--resources":
+                    resources = Integer.parseInt(value);
+                    break;
+                case "--min-retention":
+                    minRetention = Double.parseDouble(value);
+                    break;
+                case "--min-speedup":
+                    minSpeedup = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        LoadWorkload workload = new LoadWorkload(groups, depth, users, resources);
+        workload.warmUp();
+        List<String> failures = new ArrayList<>();
+
+        System.out.printf("%d groups, %d users, %d resources per policy, %d processors%n", groups, users, resources,
+                processors);
+
+        try {
+            for (String mode : modes) {
+                ThreadFactory factory = threadFactory(mode);
+                if (factory == null) {
+                    System.out.printf("%nSkipping %s threads, not available on Java %s%n", mode,
+                            Runtime.version().feature());
+                    continue;
+                }
+
+                System.out.printf("%n%-9s %7s %12s %8s %10s %10s %9s %11s %9s %11s %7s  %s%n", "mode", "threads",
+                        "requests/s", "speedup", "p50 (us)", "p99 (us)", "monitors", "blocked ms", "parks",
+                        "parked ms", "pinned", "most contended");
+
+                // compiles the request path and fills the caches before the first step, recording as the
+                // steps do since the first recording retransforms the event classes the provider uses
+                run(workload, factory, mode, threads[0], 0, initialWarmUpMillis);
+
+                double single = 0;
+                double best = 0;
+                for (int count : threads) {
+                    Step step = run(workload, factory, mode, count, warmUpMillis, durationMillis);
+                    if (single > 0 && regressed(step.throughput(), count, single, best, processors)) {
+                        print(mode, count, single, step);
+                        System.out.printf("%-9s %7d  throughput regressed, measuring again%n", mode, count);
+                        Step again = run(workload, factory, mode, count, warmUpMillis, durationMillis);
+                        step = again.throughput() > step.throughput() ? again : step;
+                    }
+
+                    double throughput = step.throughput();
+                    if (single == 0) {
+                        single = throughput / count;
+                    }
+
+                    print(mode, count, single, step);
+
+                    if (best > 0 && throughput < minRetention * best) {
+                        failures.add(String.format("%s threads: %d threads reach %.0f requests/s, below %.0f%% of"
+                                + " the %.0f requests/s reached with fewer threads", mode, count, throughput,
+                                minRetention * 100, best));
+                    }
+
+                    double ideal = single * Math.min(count, processors);
+                    if (count > threads[0] && throughput < minSpeedup * ideal) {
+                        failures.add(String.format("%s threads: %d threads reach %.0f requests/s, below %.0f%% of"
+                                + " the ideal %.0f requests/s", mode, count, throughput, minSpeedup * 100, ideal));
+                    }
+
+                    best = Math.max(best, throughput);
+                }
+            }
+        } finally {
+            workload.close();
+        }
+
+        if (!failures.isEmpty()) {
+            System.out.printf("%nScaling regressed:%n");
+            failures.forEach(failure -> System.out.println("  " + failure));
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether a step misses either scaling criterion. Steps that do
+     * are measured once more before being reported, so that a single noisy
+     * measurement does not fail the run.
+     */
+    private boolean regressed(double throughput, int count, double single, double best, int processors) {
+        return throughput < minRetention * best || throughput < minSpeedup * single * Math.min(count, processors);
+    }
+
+    private static void print(String mode, int count, double single, Step step) {
+        double throughput = step.throughput();
+        System.out.printf("%-9s %7d %12.0f %8.2f %10.1f %10.1f %9d %11d %9d %11d %7d  %s%n", mode, count,
+                throughput, throughput / single, step.percentile(0.5) / 1000.0, step.percentile(0.99) / 1000.0,
+                step.contention.monitorEnters, TimeUnit.NANOSECONDS.toMillis(step.contention.monitorNanos),
+                step.contention.parks, TimeUnit.NANOSECONDS.toMillis(step.contention.parkNanos),
+                step.contention.pinned, step.contention.getMostContended());
+    }
+
+    private Step run(LoadWorkload workload, ThreadFactory factory, String mode, int count, long warmUpMillis,
+            long durationMillis) throws Exception {
+        Worker[] workers = new Worker[count];
+        Thread[] workerThreads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Worker(workload.requests(31L * count + i), i);
+            workerThreads[i] = factory.newThread(workers[i]);
+        }
+
+        for (Thread thread : workerThreads) {
+            thread.start();
+        }
+
+        Thread.sleep(warmUpMillis);
+        ContentionRecorder recorder = ContentionRecorder.start(THREAD_PREFIX + mode);
+        long start = System.nanoTime();
+        Worker.phase = Worker.MEASURING;
+        Thread.sleep(durationMillis);
+        Worker.phase = Worker.STOPPING;
+        long elapsed = System.nanoTime() - start;
+        ContentionRecorder.Contention contention = recorder.stop();
+
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+        Worker.phase = Worker.WARMING_UP;
+
+        return new Step(workers, elapsed, contention);
+    }
+
+    /**
+     * Returns a factory of platform or virtual threads, or {@code null} if the
+     * runtime has no virtual threads. Virtual threads are created
+     * reflectively, as the benchmarks are compiled for Java 17.
+     */
+    private static ThreadFactory threadFactory(String mode) {
+        String prefix = THREAD_PREFIX + mode + "-";
+
+        if ("platform".equals(mode)) {
+            AtomicInteger next = new AtomicInteger();
+            return runnable -> new Thread(runnable, prefix + next.getAndIncrement());
+        }
+
+        if (!"virtual".equals(mode)) {
+            throw new IllegalArgumentException("Unknown thread mode " + mode);
+        }
+
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        static final int WARMING_UP = 0;
+        static final int MEASURING = 1;
+        static final int STOPPING = 2;
+
+        static volatile int phase = WARMING_UP;
+
+        private final LoadWorkload.Requests requests;
+        private final SplittableRandom random;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private long count;
+
+        Worker(LoadWorkload.Requests requests, long seed) {
+            this.requests = requests;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void run() {
+            int current;
+            while ((current = phase) != STOPPING) {
+                long start = System.nanoTime();
+                requests.next();
+                long latency = System.nanoTime() - start;
+
+                if (current == MEASURING) {
+                    record(latency);
+                }
+            }
+        }
+
+        /**
+         * Keeps a uniform sample of the latencies with reservoir sampling.
+         */
+        private void record(long latency) {
+            if (count < LATENCY_SAMPLES) {
+                latencies[(int) count] = latency;
+            } else {
+                long slot = random.nextLong(count + 1);
+                if (slot < LATENCY_SAMPLES) {
+                    latencies[(int) slot] = latency;
+                }
+            }
+            count++;
+        }
+    }
+
+    private static final class Step {
+        private final long requests;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private final ContentionRecorder.Contention contention;
+
+        /**
+         * Pools the latency samples of the workers, keeping the same fraction
+         * of every worker's requests so that busier workers weigh more.
+         */
+        Step(Worker[] workers, long elapsedNanos, ContentionRecorder.Contention contention) {
+            long requests = 0;
+            double fraction = 1;
+            for (Worker worker : workers) {
+                requests += worker.count;
+                if (worker.count > 0) {
+                    fraction = Math.min(fraction, Math.min(worker.count, LATENCY_SAMPLES) / (double) worker.count);
+                }
+            }
+
+            long[] latencies = new long[workers.length * LATENCY_SAMPLES];
+            int size = 0;
+            for (Worker worker : workers) {
+                int kept = (int) Math.min(Math.round(worker.count * fraction), LATENCY_SAMPLES);
+                System.arraycopy(worker.latencies, 0, latencies, size, kept);
+                size += kept;
+            }
+
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = Arrays.copyOf(latencies, size);
+            this.contention = contention;
+            Arrays.sort(this.latencies);
+        }
+
+        double throughput() {
+            return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        long percentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+
+            return latencies[(int) Math.min(latencies.length - 1, Math.floor(percentile * latencies.length))];
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipPolicyProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+/**
+ * Mixed authorization workload over one shared provider instance, as returned
+ * by {@link GroupMembershipPolicyProviderFactory#create}. Requests come from a
+ * population of users, some presenting a token id so that their groups are
+ * cached across requests and some not, and evaluate a handful of permissions
+ * spread over policies with different resource and group match targets, one
+ * of which caches its decisions.
+ */
+public class LoadWorkload {
+    private static final int MAX_PERMISSIONS = 8;
+
+    private final BenchmarkRealm realm;
+    private final GroupMembershipPolicyProviderFactory factory;
+    private final PolicyProvider provider;
+    private final InMemoryUserRealm userRealm;
+    private final List<Target> targets = new ArrayList<>();
+    private final List<InMemoryIdentity> identities = new ArrayList<>();
+
+    public LoadWorkload(int groups, int depth, int users, int resources) {
+        realm = BenchmarkRealm.create(groups, depth);
+
+        factory = new GroupMembershipPolicyProviderFactory();
+        // bulk resolution reads the resource store, which the stand-ins lack
+        factory.init(new MapConfigScope().with("bulkEvaluationThreshold", 0));
+        provider = factory.create((KeycloakSession) null);
+
+        Random random = new Random(42);
+        Map<String, List<String>> userGroups = new HashMap<>();
+        userRealm = new InMemoryUserRealm(userGroups);
+
+        addPolicy("by-id", ResourceMatchTarget.NAME, GroupMatchTarget.ID, false, false, resources, random);
+        addPolicy("by-path", ResourceMatchTarget.URI, GroupMatchTarget.PATH, true, false, resources, random);
+        addPolicy("by-attribute", ResourceMatchTarget.ATTRIBUTE, GroupMatchTarget.ATTRIBUTE, true, true, resources,
+                random);
+
+        String expiry = String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+                + TimeUnit.DAYS.toSeconds(1));
+        for (int i = 0; i < users; i++) {
+            Target target = targets.get(random.nextInt(targets.size()));
+            List<String> claim = realm.claim(random, 10, random.nextBoolean() ? target.group : null);
+            Map<String, Collection<String>> claims = new HashMap<>();
+            claims.put(BenchmarkRealm.GROUPS_CLAIM, claim);
+            if (i % 4 != 0) {
+                claims.put("jti", Collections.singletonList("token-" + i));
+                claims.put("exp", Collections.singletonList(expiry));
+            }
+            userGroups.put("user-" + i, claim);
+            identities.add(new InMemoryIdentity("user-" + i, claims));
+        }
+    }
+
+    private void addPolicy(String id, ResourceMatchTarget resourceMatchTarget, GroupMatchTarget groupMatchTarget,
+            boolean withPattern, boolean decisionCache, int resources, Random random) {
+        InMemoryPolicy policy = realm.policy(id, resourceMatchTarget, groupMatchTarget, withPattern);
+        if (decisionCache) {
+            policy.putConfig("decisionCache", "true");
+        }
+
+        for (int i = 0; i < resources; i++) {
+            InMemoryGroup group = realm.getGroup(random);
+            targets.add(new Target(policy, realm.resource(id + "-resource-" + i, group, resourceMatchTarget,
+                    groupMatchTarget, withPattern), group));
+        }
+    }
+
+    /**
+     * Evaluates every resource once on the calling thread, so that the
+     * measurements start with the policies compiled and the realm indexes and
+     * resource caches built.
+     */
+    public void warmUp() {
+        Requests requests = new Requests(0);
+        for (int i = 0; i < targets.size(); i++) {
+            requests.evaluate(identities.get(i % identities.size()), targets.get(i));
+        }
+    }
+
+    /**
+     * Returns a request issuer for one worker thread. Each request runs in a
+     * session of its own, as it would in the server.
+     */
+    public Requests requests(long seed) {
+        return new Requests(seed);
+    }
+
+    public void close() {
+        factory.close();
+    }
+
+    public class Requests {
+        private final SplittableRandom random;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final AuthorizationProvider authorization;
+
+        Requests(long seed) {
+            random = new SplittableRandom(seed);
+            KeycloakSession session = InMemoryModels.session(realm.getGroupProvider(), attributes);
+            authorization = new AuthorizationProvider(session, realm.getRealm(), null);
+        }
+
+        /**
+         * Evaluates between one and {@value LoadWorkload#MAX_PERMISSIONS}
+         * permissions for a random user, and returns how many were granted.
+         */
+        public int next() {
+            attributes.clear();
+            InMemoryIdentity identity = identities.get(random.nextInt(identities.size()));
+            int permissions = 1 + random.nextInt(MAX_PERMISSIONS);
+            int granted = 0;
+
+            for (int i = 0; i < permissions; i++) {
+                if (evaluate(identity, targets.get(random.nextInt(targets.size())))) {
+                    granted++;
+                }
+            }
+
+            return granted;
+        }
+
+        private boolean evaluate(InMemoryIdentity identity, Target target) {
+            InMemoryEvaluation evaluation = new InMemoryEvaluation(authorization, target.policy, target.resource,
+                    identity, userRealm);
+            provider.evaluate(evaluation);
+            return evaluation.isGranted();
+        }
+    }
+
+    private static final class Target {
+        private final InMemoryPolicy policy;
+        private final InMemoryResource resource;
+        private final InMemoryGroup group;
+
+        Target(InMemoryPolicy policy, InMemoryResource resource, InMemoryGroup group) {
+            this.policy = policy;
+            this.resource = resource;
+            this.group = group;
+        }
+    }
+}
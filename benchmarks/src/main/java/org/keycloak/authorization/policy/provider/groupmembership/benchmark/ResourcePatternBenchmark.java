@@ -0,0 +1,116 @@
+package org.keycloak.authorization.policy.provider.groupmembership.benchmark;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.authorization.policy.provider.groupmembership.GroupMembershipPolicyProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the regex and path template pattern syntaxes for URI matching on
+ * resources carrying many URIs, of which only the last one names the group.
+ * The resource cache is disabled so that every evaluation runs the pattern.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourcePatternBenchmark {
+    private static final int EVALUATIONS = 1024;
+    private static final String REGEX = "/tenants/([^/]+)/projects/[^/]+/\\*\\*";
+    private static final String TEMPLATE = "/tenants/{group}/projects/*/**";
+
+    @Param({ "1", "16" })
+    public int uriCount;
+
+    @Param({ "REGEX", "TEMPLATE" })
+    public String syntax;
+
+    private final Map<String, Object> sessionAttributes = new HashMap<>();
+    private GroupMembershipPolicyProviderFactory factory;
+    private PolicyProvider provider;
+    private InMemoryEvaluation[] evaluations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkRealm realm = BenchmarkRealm.create(1000, 3);
+        KeycloakSession session = InMemoryModels.session(realm.getGroupProvider(), sessionAttributes);
+        AuthorizationProvider authorization = new AuthorizationProvider(session, realm.getRealm(), null);
+
+        factory = new GroupMembershipPolicyProviderFactory();
+        factory.init(new MapConfigScope().with("resourceCacheSize", 0));
+        provider = factory.create(session);
+
+        InMemoryPolicy policy = realm.policy("policy", ResourceMatchTarget.URI, GroupMatchTarget.NAME, false);
+        Map<String, String> config = new HashMap<>(policy.getConfig());
+        config.put("pattern", "TEMPLATE".equals(syntax) ? TEMPLATE : REGEX);
+        policy.setConfig(config);
+
+        Random random = new Random(42);
+        Map<String, List<String>> userGroups = new HashMap<>();
+        InMemoryUserRealm userRealm = new InMemoryUserRealm(userGroups);
+
+        evaluations = new InMemoryEvaluation[EVALUATIONS];
+        for (int i = 0; i < EVALUATIONS; i++) {
+            InMemoryGroup group = realm.getGroup(random);
+            InMemoryResource resource = new InMemoryResource("resource-" + i, "resource-" + i,
+                    realm.getResourceServer());
+            Set<String> uris = new LinkedHashSet<>();
+            for (int u = 1; u < uriCount; u++) {
+                uris.add("/static/assets/" + u + "/**");
+            }
+            uris.add("/tenants/" + group.getName() + "/projects/p" + i + "/**");
+            resource.updateUris(uris);
+
+            List<String> claim = i % 2 == 0 ? Collections.singletonList(group.getName())
+                    : Collections.emptyList();
+            Map<String, Collection<String>> claims = new HashMap<>();
+            claims.put(BenchmarkRealm.GROUPS_CLAIM, claim);
+            userGroups.put("user-" + i, claim);
+
+            evaluations[i] = new InMemoryEvaluation(authorization, policy, resource,
+                    new InMemoryIdentity("user-" + i, claims), userRealm);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        InMemoryEvaluation evaluation = evaluations[next++ & (EVALUATIONS - 1)];
+        sessionAttributes.clear();
+        evaluation.reset();
+        provider.evaluate(evaluation);
+        return evaluation.isGranted();
+    }
+}
@@ -0,0 +1,29 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Detached snapshot of a group a resource grants access to. Unlike a
+ * {@code GroupModel} it is not bound to a session and can be cached.
+ */
+final class AllowedGroup {
+    private final String id;
+    private final String name;
+    private final String path;
+
+    AllowedGroup(String id, String name, String path) {
+        this.id = id;
+        this.name = name;
+        this.path = path;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getPath() {
+        return path;
+    }
+}
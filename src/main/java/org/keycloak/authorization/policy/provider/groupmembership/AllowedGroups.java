@@ -0,0 +1,64 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The groups a resource grants access to, together with their ordinals in the
+ * {@link RealmGroupIndex} they were resolved with. The ordinals are only set
+ * when every group was indexed, and are only meaningful for the index
+ * generation they were taken from.
+ */
+final class AllowedGroups {
+    static final AllowedGroups NONE = new AllowedGroups(Collections.emptyList(), 0, null);
+
+    private final List<AllowedGroup> groups;
+    private final int generation;
+    private final CompactBitmap ordinals;
+
+    private AllowedGroups(List<AllowedGroup> groups, int generation, CompactBitmap ordinals) {
+        this.groups = groups;
+        this.generation = generation;
+        this.ordinals = ordinals;
+    }
+
+    static AllowedGroups of(List<AllowedGroup> groups, RealmGroupIndex index) {
+        if (groups.isEmpty()) {
+            return NONE;
+        }
+
+        if (index == null) {
+            return new AllowedGroups(groups, 0, null);
+        }
+
+        int[] ordinals = new int[groups.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = index.getOrdinal(groups.get(i).getId());
+            if (ordinals[i] == -1) {
+                return new AllowedGroups(groups, 0, null);
+            }
+        }
+
+        return new AllowedGroups(groups, index.getGeneration(), CompactBitmap.of(ordinals, ordinals.length));
+    }
+
+    List<AllowedGroup> getGroups() {
+        return groups;
+    }
+
+    boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    int size() {
+        return groups.size();
+    }
+
+    /**
+     * Returns the ordinals of the groups if they were taken from the given
+     * index generation, {@code null} otherwise.
+     */
+    CompactBitmap getOrdinals(RealmGroupIndex index) {
+        return ordinals != null && index != null && index.getGeneration() == generation ? ordinals : null;
+    }
+}
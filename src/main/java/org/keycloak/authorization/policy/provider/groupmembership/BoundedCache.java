@@ -0,0 +1,60 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent map with an upper bound on the number of entries. When the bound
+ * is exceeded an arbitrary tenth of the entries is dropped, which keeps writes
+ * lock-free and is good enough for caches whose entries are cheap to rebuild.
+ */
+final class BoundedCache<K, V> {
+    private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    V get(K key) {
+        return entries.get(key);
+    }
+
+    void put(K key, V value) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        entries.put(key, value);
+
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    void removeIf(Predicate<V> predicate) {
+        entries.values().removeIf(predicate);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<K> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
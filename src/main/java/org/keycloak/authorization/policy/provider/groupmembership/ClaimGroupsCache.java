@@ -0,0 +1,189 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the normalized groups claim of access tokens across requests, so
+ * that a token presented again skips reading and normalizing the claim.
+ * Entries are kept per token id and claim, so policies reading different
+ * claims of the same token do not evict each other, and are only served for
+ * the identity they were read for. The entries of a token are chained
+ * behind its id, so a lookup builds no key. Entries live until the token
+ * expires or for the configured time to live, whichever comes first.
+ *
+ * <p>
+ * Lookups take no lock: each token records the millisecond it was last read,
+ * and once the maximum number of tokens is exceeded a single thread drops the
+ * expired entries and then the least recently read tokens, a tenth of the
+ * maximum size at a time. Threads adding entries meanwhile do not wait for
+ * it, so the cache may briefly hold more tokens than the maximum.
+ */
+final class ClaimGroupsCache {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final int maxSize;
+    private final long ttlMillis;
+    private final boolean enabled;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ClaimGroupsCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.enabled = maxSize > 0 && ttlMillis > 0;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    UserGroups get(String tokenId, String identityId, String claim) {
+        long now = System.currentTimeMillis();
+        Entry token = entries.get(tokenId);
+        Entry entry = token == null ? null : token.find(claim);
+
+        if (entry != null && entry.expiresAt <= now) {
+            entries.computeIfPresent(tokenId, (id, current) -> current.without(claim, now));
+            entry = null;
+        }
+
+        if (entry == null || !entry.identityId.equals(identityId)) {
+            misses.increment();
+            return null;
+        }
+
+        token.touch(now);
+        hits.increment();
+
+        return entry.groups;
+    }
+
+    /**
+     * Caches the groups of a token expiring at {@code tokenExpiresAt}, or
+     * {@code 0} when the expiry is unknown.
+     */
+    void put(String tokenId, String identityId, String claim, UserGroups groups, long tokenExpiresAt) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAt = tokenExpiresAt > 0 ? Math.min(now + ttlMillis, tokenExpiresAt) : now + ttlMillis;
+
+        if (expiresAt <= now) {
+            return;
+        }
+
+        entries.compute(tokenId, (id, current) -> new Entry(identityId, claim, groups, expiresAt, now,
+                current == null ? null : current.without(claim, now)));
+
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            for (String tokenId : entries.keySet()) {
+                entries.computeIfPresent(tokenId, (id, token) -> token.without(null, now));
+            }
+
+            int excess = entries.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+
+            long[] readAt = entries.values().stream().mapToLong(entry -> entry.readAt).toArray();
+            if (readAt.length == 0) {
+                return;
+            }
+
+            int toRemove = Math.min(readAt.length, excess + Math.max(1, maxSize / 10));
+            Arrays.sort(readAt);
+            long threshold = readAt[toRemove - 1];
+
+            int[] removed = new int[1];
+            entries.values().removeIf(entry -> entry.readAt <= threshold && removed[0]++ < toRemove);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * The groups read from one claim of a token, followed by the entries of
+     * the other claims read from the same token. The first entry of a token
+     * records when the token was last read.
+     */
+    private static final class Entry {
+        private final String identityId;
+        private final String claim;
+        private final UserGroups groups;
+        private final long expiresAt;
+        private final Entry next;
+        private volatile long readAt;
+
+        Entry(String identityId, String claim, UserGroups groups, long expiresAt, long readAt, Entry next) {
+            this.identityId = identityId;
+            this.claim = claim;
+            this.groups = groups;
+            this.expiresAt = expiresAt;
+            this.readAt = readAt;
+            this.next = next;
+        }
+
+        Entry find(String claim) {
+            for (Entry entry = this; entry != null; entry = entry.next) {
+                if (entry.claim.equals(claim)) {
+                    return entry;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns the entries of the token without the one of the given
+         * claim and without the expired ones, or {@code null} if none is
+         * left.
+         */
+        Entry without(String claim, long now) {
+            Entry rest = next == null ? null : next.without(claim, now);
+            if (this.claim.equals(claim) || expiresAt <= now) {
+                return rest;
+            }
+
+            return rest == next ? this : new Entry(identityId, this.claim, groups, expiresAt, readAt, rest);
+        }
+
+        void touch(long now) {
+            // written at most once per millisecond, so hot entries do not keep invalidating the cache line
+            if (readAt != now) {
+                readAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Groups listed in a groups claim, by name or by full path, together with
+ * every path the listed paths are equal to or a descendant of. A user is a
+ * member of a group if the claim lists its name, its path or the path of one
+ * of its subgroups, so testing membership takes two set lookups.
+ *
+ * <p>
+ * Instances are immutable and do not depend on Keycloak, so they can be shared
+ * between threads and used outside of the server.
+ */
+public final class ClaimedGroups {
+    private static final char SEPARATOR = '/';
+
+    private final Set<String> names;
+    private final Set<String> coveredPaths;
+
+    private ClaimedGroups(Set<String> names, Set<String> coveredPaths) {
+        this.names = names;
+        this.coveredPaths = coveredPaths;
+    }
+
+    /**
+     * Splits the values of a groups claim into group names and group paths,
+     * the latter being the values containing a {@code /}.
+     */
+    public static ClaimedGroups of(Collection<String> claim) {
+        Set<String> names = new HashSet<>();
+        Set<String> coveredPaths = new HashSet<>();
+
+        for (String group : claim) {
+            if (group == null || group.isEmpty()) {
+                continue;
+            }
+
+            if (group.indexOf(SEPARATOR) == -1) {
+                names.add(group);
+            } else {
+                addPathAndAncestors(coveredPaths, group);
+            }
+        }
+
+        return new ClaimedGroups(names, coveredPaths);
+    }
+
+    /**
+     * Covers the given group paths only, for callers that test group names
+     * themselves.
+     */
+    static ClaimedGroups ofPaths(Collection<String> paths) {
+        Set<String> coveredPaths = new HashSet<>(paths.size() * 2);
+        for (String path : paths) {
+            addPathAndAncestors(coveredPaths, path);
+        }
+
+        return new ClaimedGroups(Collections.emptySet(), coveredPaths);
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty() && coveredPaths.isEmpty();
+    }
+
+    /**
+     * Returns whether the claim lists the group with the given name and path,
+     * or one of its subgroups.
+     */
+    public boolean isMemberOf(String groupName, String groupPath) {
+        return names.contains(groupName) || coversPath(groupPath);
+    }
+
+    /**
+     * Returns whether the claim lists the group at {@code groupPath} or one of
+     * its subgroups by path.
+     */
+    public boolean coversPath(String groupPath) {
+        return coveredPaths.contains(groupPath);
+    }
+
+    private static void addPathAndAncestors(Set<String> paths, String path) {
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+
+        if (!paths.add(path.substring(0, end))) {
+            return;
+        }
+
+        for (int i = path.lastIndexOf(SEPARATOR, end - 1); i > 0; i = path.lastIndexOf(SEPARATOR, i - 1)) {
+            if (!paths.add(path.substring(0, i))) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Several patterns of one policy, tried in the order they are configured. The
+ * regular expressions are joined into a single alternation so that one match
+ * over the value finds which of them applies, with the capturing groups of
+ * every alternative renumbered. Path templates, and regular expressions using
+ * back references that would not survive renumbering or named groups that
+ * another pattern may define as well, are tried one by one.
+ */
+final class CombinedGroupIdentifierPattern implements GroupIdentifierPattern {
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+    private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<[a-zA-Z]");
+
+    private final Pattern regex;
+    private final int[] regexGroups;
+    private final int[] regexOrder;
+    private final GroupIdentifierPattern[] others;
+    private final int[] otherOrder;
+
+    private CombinedGroupIdentifierPattern(Pattern regex, int[] regexGroups, int[] regexOrder,
+            GroupIdentifierPattern[] others, int[] otherOrder) {
+        this.regex = regex;
+        this.regexGroups = regexGroups;
+        this.regexOrder = regexOrder;
+        this.others = others;
+        this.otherOrder = otherOrder;
+    }
+
+    static GroupIdentifierPattern compile(List<String> patterns) {
+        StringBuilder alternation = new StringBuilder();
+        List<Integer> regexGroups = new ArrayList<>();
+        List<Integer> regexOrder = new ArrayList<>();
+        List<GroupIdentifierPattern> others = new ArrayList<>();
+        List<Integer> otherOrder = new ArrayList<>();
+        int group = 1;
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+
+            if (PathTemplate.isTemplate(pattern) || BACK_REFERENCE.matcher(pattern).find()
+                    || NAMED_GROUP.matcher(pattern).find()) {
+                others.add(GroupIdentifierPattern.compile(pattern));
+                otherOrder.add(i);
+                continue;
+            }
+
+            int groupCount = GroupIdentifierPattern.compileRegex(pattern).matcher("").groupCount();
+            if (alternation.length() > 0) {
+                alternation.append('|');
+            }
+            alternation.append('(').append(pattern).append(')');
+            regexGroups.add(group);
+            regexOrder.add(i);
+            group += groupCount + 1;
+        }
+
+        return new CombinedGroupIdentifierPattern(
+                regexGroups.isEmpty() ? null : Pattern.compile(alternation.toString()),
+                regexGroups.stream().mapToInt(Integer::intValue).toArray(),
+                regexOrder.stream().mapToInt(Integer::intValue).toArray(),
+                others.toArray(new GroupIdentifierPattern[0]),
+                otherOrder.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public String extract(String value) {
+        String identifier = null;
+        int order = Integer.MAX_VALUE;
+
+        if (regex != null) {
+            Matcher matcher = regex.matcher(value);
+            if (matcher.matches()) {
+                for (int i = 0; i < regexGroups.length; i++) {
+                    if (matcher.start(regexGroups[i]) != -1) {
+                        identifier = matcher.group(regexGroups[i] + 1);
+                        order = regexOrder[i];
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < others.length && otherOrder[i] < order; i++) {
+            String other = others[i].extract(value);
+            if (other != null) {
+                return other;
+            }
+        }
+
+        return identifier;
+    }
+}
@@ -0,0 +1,169 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of non-negative ints laid out like a roaring bitmap. Values
+ * are split by their upper 16 bits into chunks, and each chunk is stored
+ * either as a sorted array of its lower 16 bits, or as a 65536 bit bitmap
+ * once it holds more than {@value #ARRAY_CONTAINER_MAX} values. Sparse sets
+ * therefore cost two bytes per value and dense ones one bit per possible
+ * value.
+ */
+final class CompactBitmap {
+    static final CompactBitmap EMPTY = new CompactBitmap(new char[0], new Object[0], 0);
+
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+    private static final int BITMAP_CONTAINER_WORDS = 1 << 10;
+
+    private final char[] keys;
+    private final Object[] containers;
+    private final int cardinality;
+
+    private CompactBitmap(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Creates a bitmap of the first {@code length} values of the array, which
+     * may be unsorted and contain duplicates.
+     */
+    static CompactBitmap of(int[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        int[] sorted = Arrays.copyOf(values, length);
+        Arrays.sort(sorted);
+
+        char[] keys = new char[8];
+        Object[] containers = new Object[8];
+        char[] lows = new char[Math.min(length, 1 << 16)];
+        int chunks = 0;
+        int cardinality = 0;
+        int i = 0;
+
+        while (i < length) {
+            int key = sorted[i] >>> 16;
+            int count = 0;
+
+            for (; i < length && sorted[i] >>> 16 == key; i++) {
+                char low = (char) sorted[i];
+                if (count == 0 || lows[count - 1] != low) {
+                    lows[count++] = low;
+                }
+            }
+
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+
+            keys[chunks] = (char) key;
+            containers[chunks] = count > ARRAY_CONTAINER_MAX ? toBitmap(lows, count) : Arrays.copyOf(lows, count);
+            chunks++;
+            cardinality += count;
+        }
+
+        return new CompactBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks), cardinality);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        return index >= 0 && contains(containers[index], (char) value);
+    }
+
+    /**
+     * Returns whether both bitmaps have at least one value in common.
+     */
+    boolean intersects(CompactBitmap other) {
+        int i = 0;
+        int j = 0;
+
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                if (intersects(containers[i], other.containers[j])) {
+                    return true;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        return false;
+    }
+
+    private static long[] toBitmap(char[] lows, int count) {
+        long[] words = new long[BITMAP_CONTAINER_WORDS];
+
+        for (int i = 0; i < count; i++) {
+            words[lows[i] >>> 6] |= 1L << lows[i];
+        }
+
+        return words;
+    }
+
+    private static boolean contains(Object container, char low) {
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & 1L << low) != 0;
+        }
+
+        return Arrays.binarySearch((char[]) container, low) >= 0;
+    }
+
+    private static boolean intersects(Object left, Object right) {
+        if (left instanceof long[] && right instanceof long[]) {
+            long[] leftWords = (long[]) left;
+            long[] rightWords = (long[]) right;
+            for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+                if ((leftWords[i] & rightWords[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (left instanceof long[]) {
+            return intersects(right, left);
+        }
+
+        char[] lows = (char[]) left;
+        if (right instanceof long[]) {
+            for (char low : lows) {
+                if (contains(right, low)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        char[] otherLows = (char[]) right;
+        int i = 0;
+        int j = 0;
+        while (i < lows.length && j < otherLows.length) {
+            if (lows[i] < otherLows[j]) {
+                i++;
+            } else if (lows[i] > otherLows[j]) {
+                j++;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.GroupMembershipPolicyRepresentation;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+/**
+ * Immutable, evaluation-ready form of a group membership policy. Instances are
+ * built once per policy configuration and shared between threads.
+ */
+final class CompiledGroupMembershipPolicy {
+    private static final String USER_GROUPS_ATTRIBUTE = GroupMembershipPolicyProvider.class.getName()
+            + ".userGroups:";
+    private static final String RESOURCE_BATCH_ATTRIBUTE = GroupMembershipPolicyProvider.class.getName()
+            + ".resourceBatch:";
+
+    private final String policyId;
+    private final String resourceServerId;
+    private final Map<String, String> config;
+    private final int configVersion;
+    private final String groupsClaim;
+    private final GroupMembershipMatcher matcher;
+    private final boolean decisionCacheEnabled;
+    private final String userGroupsAttribute;
+    private final String resourceBatchAttribute;
+
+    CompiledGroupMembershipPolicy(String policyId, String resourceServerId, Map<String, String> config,
+            GroupMembershipPolicyRepresentation representation) {
+        this.policyId = policyId;
+        this.resourceServerId = resourceServerId;
+        this.config = Collections.unmodifiableMap(new HashMap<>(config));
+        this.configVersion = config.hashCode();
+        this.groupsClaim = representation.getGroupsClaim();
+        this.matcher = GroupMembershipMatcher.compile(representation.getResourceMatchTarget(),
+                representation.getGroupMatchTarget(), representation.getGroupMatchAttributeName(),
+                patterns(representation));
+        this.decisionCacheEnabled = representation.isDecisionCache();
+        this.userGroupsAttribute = USER_GROUPS_ATTRIBUTE + groupsClaim;
+        this.resourceBatchAttribute = RESOURCE_BATCH_ATTRIBUTE + policyId;
+    }
+
+    private static List<String> patterns(GroupMembershipPolicyRepresentation representation) {
+        List<String> patterns = new ArrayList<>();
+        if (representation.getPattern() != null) {
+            patterns.add(representation.getPattern());
+        }
+        if (representation.getPatterns() != null) {
+            patterns.addAll(representation.getPatterns());
+        }
+
+        return patterns;
+    }
+
+    boolean isCompiledFrom(Map<String, String> config) {
+        return configVersion == config.hashCode() && this.config.equals(config);
+    }
+
+    String getPolicyId() {
+        return policyId;
+    }
+
+    String getResourceServerId() {
+        return resourceServerId;
+    }
+
+    int getConfigVersion() {
+        return configVersion;
+    }
+
+    String getGroupsClaim() {
+        return groupsClaim;
+    }
+
+    GroupMembershipMatcher getMatcher() {
+        return matcher;
+    }
+
+    ResourceMatchTarget getResourceMatchTarget() {
+        return matcher.getResourceMatchTarget();
+    }
+
+    GroupMatchTarget getGroupMatchTarget() {
+        return matcher.getGroupMatchTarget();
+    }
+
+    /**
+     * Name of the session attribute memoizing the groups of the identity read
+     * from the groups claim of this policy.
+     */
+    String getUserGroupsAttribute() {
+        return userGroupsAttribute;
+    }
+
+    /**
+     * Name of the session attribute tracking the resources this policy
+     * evaluated within a request.
+     */
+    String getResourceBatchAttribute() {
+        return resourceBatchAttribute;
+    }
+
+    boolean isDecisionCacheEnabled() {
+        return decisionCacheEnabled;
+    }
+
+    String getGroupMatchAttributeName() {
+        return matcher.getGroupMatchAttributeName();
+    }
+}
@@ -0,0 +1,51 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.representations.idm.authorization.GroupMembershipPolicyRepresentation;
+
+/**
+ * Keeps compiled policies keyed by policy id. An entry is only reused while the
+ * policy configuration it was compiled from is unchanged, so a missed
+ * invalidation can never serve an outdated pattern.
+ */
+final class CompiledPolicyCache {
+    private final BiFunction<Policy, AuthorizationProvider, GroupMembershipPolicyRepresentation> representationFunction;
+    private final BoundedCache<String, CompiledGroupMembershipPolicy> policies;
+
+    CompiledPolicyCache(
+            BiFunction<Policy, AuthorizationProvider, GroupMembershipPolicyRepresentation> representationFunction,
+            int maxSize) {
+        this.representationFunction = representationFunction;
+        this.policies = new BoundedCache<>(maxSize);
+    }
+
+    CompiledGroupMembershipPolicy get(Policy policy, AuthorizationProvider authorization) {
+        Map<String, String> config = policy.getConfig();
+        CompiledGroupMembershipPolicy compiled = policies.get(policy.getId());
+        if (compiled != null && compiled.isCompiledFrom(config)) {
+            return compiled;
+        }
+
+        compiled = new CompiledGroupMembershipPolicy(policy.getId(), policy.getResourceServer().getId(), config,
+                representationFunction.apply(policy, authorization));
+        policies.put(policy.getId(), compiled);
+
+        return compiled;
+    }
+
+    void invalidate(String policyId) {
+        policies.remove(policyId);
+    }
+
+    void invalidateResourceServer(String resourceServerId) {
+        policies.removeIf(p -> resourceServerId.equals(p.getResourceServerId()));
+    }
+
+    void clear() {
+        policies.clear();
+    }
+}
@@ -0,0 +1,82 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Caches the decisions of the policies that opt in, keyed by policy, resource
+ * and the {@link UserGroups#getSortedGroups() groups} of the identity. Users
+ * sharing the same groups share the decision, so it is only computed once for
+ * all of them. The {@link UserGroups#getFingerprint() fingerprint} of the
+ * groups selects the entry, and the groups themselves are compared on a hit,
+ * so users whose groups collide on the fingerprint never share a decision.
+ *
+ * <p>
+ * Entries are validated as described in {@link VersionedResourceCache}.
+ */
+final class DecisionCache {
+    private final VersionedResourceCache<EvaluationOutcome> entries;
+    private final boolean enabled;
+
+    DecisionCache(int maxSize, long ttlMillis) {
+        this.entries = new VersionedResourceCache<>(maxSize, ttlMillis);
+        this.enabled = maxSize > 0 && ttlMillis > 0;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached outcome, or {@code null} if no valid decision is
+     * cached.
+     */
+    EvaluationOutcome get(CompiledGroupMembershipPolicy policy, String resourceId, UserGroups userGroups,
+            Object resourceFingerprint) {
+        return entries.get(policy, resourceId, userGroups.getFingerprint(), userGroups.getSortedGroups(),
+                resourceFingerprint);
+    }
+
+    /**
+     * Returns the current invalidation version of the decisions of a policy
+     * in a realm, to be read before deciding.
+     */
+    long version(String policyId, String realmId) {
+        return entries.version(policyId, realmId);
+    }
+
+    void put(CompiledGroupMembershipPolicy policy, String resourceId, String realmId, UserGroups userGroups,
+            Object resourceFingerprint, EvaluationOutcome outcome, long version) {
+        entries.put(policy, resourceId, realmId, userGroups.getFingerprint(), userGroups.getSortedGroups(),
+                resourceFingerprint, outcome, version);
+    }
+
+    void invalidatePolicy(String policyId) {
+        entries.invalidatePolicy(policyId);
+    }
+
+    void invalidateRealm(String realmId) {
+        entries.invalidateRealm(realmId);
+    }
+
+    void removePolicy(String policyId) {
+        entries.removePolicy(policyId);
+    }
+
+    void removeRealm(String realmId) {
+        entries.removeRealm(realmId);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    long getHits() {
+        return entries.getHits();
+    }
+
+    long getMisses() {
+        return entries.getMisses();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,13 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Result of evaluating a group membership policy for one permission.
+ */
+public enum EvaluationOutcome {
+    /** The identity is a member of one of the groups the resource maps to. */
+    GRANTED,
+    /** The resource maps to groups the identity is not a member of. */
+    DENIED,
+    /** The resource does not map to any group. */
+    NO_MATCH
+}
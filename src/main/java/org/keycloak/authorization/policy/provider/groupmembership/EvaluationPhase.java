@@ -0,0 +1,17 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Phases of a group membership policy evaluation that are timed separately.
+ */
+public enum EvaluationPhase {
+    /** Looking up or compiling the policy configuration. */
+    POLICY,
+    /** Extracting the group identifier from the resource with the policy pattern. */
+    PATTERN,
+    /** Resolving the group identifier against the realm groups. */
+    GROUP_LOOKUP,
+    /** Testing the allowed groups against the groups of the identity. */
+    MEMBERSHIP,
+    /** The whole evaluation. */
+    TOTAL
+}
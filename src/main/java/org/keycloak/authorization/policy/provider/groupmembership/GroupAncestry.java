@@ -0,0 +1,58 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Names of a group and of its ancestors, from the top-level group down. Group
+ * paths are compared against them segment by segment, in place, so testing
+ * whether a path lies at or below the group allocates nothing. The path of
+ * the group itself is only built when asked for.
+ */
+final class GroupAncestry {
+    private static final char SEPARATOR = '/';
+
+    private final String[] names;
+    private volatile String path;
+
+    private GroupAncestry(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Returns the ancestry made of the given names, from the top-level group
+     * down to the group itself.
+     */
+    static GroupAncestry of(String[] names) {
+        return new GroupAncestry(names);
+    }
+
+    String getPath() {
+        String current = path;
+        if (current == null) {
+            StringBuilder builder = new StringBuilder();
+            for (String name : names) {
+                builder.append(SEPARATOR).append(name);
+            }
+            current = builder.toString();
+            path = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Returns whether {@code path} is the path of this group or of one of its
+     * descendants.
+     */
+    boolean isAncestorOrSelfOf(String path) {
+        int offset = 0;
+
+        for (String name : names) {
+            if (offset >= path.length() || path.charAt(offset) != SEPARATOR
+                    || !path.regionMatches(offset + 1, name, 0, name.length())) {
+                return false;
+            }
+            offset += name.length() + 1;
+        }
+
+        return offset == path.length() || path.charAt(offset) == SEPARATOR;
+    }
+}
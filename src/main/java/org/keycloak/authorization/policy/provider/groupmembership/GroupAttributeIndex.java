@@ -0,0 +1,65 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Inverted index from the first value of a single group attribute to the ids
+ * of the groups carrying it. One index is built per attribute name referenced
+ * by a policy.
+ */
+final class GroupAttributeIndex {
+    private final Map<String, Set<String>> valueToIds = new ConcurrentHashMap<>();
+    private final Map<String, String> idToValue = new ConcurrentHashMap<>();
+    private final long createdAt;
+
+    private GroupAttributeIndex(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    static GroupAttributeIndex build(GroupProvider groupProvider, RealmModel realm, String attributeName) {
+        GroupAttributeIndex index = new GroupAttributeIndex(System.currentTimeMillis());
+
+        groupProvider.getGroupsStream(realm)
+                .forEach(group -> index.update(group.getId(), group.getFirstAttribute(attributeName)));
+
+        return index;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    int size() {
+        return idToValue.size();
+    }
+
+    Set<String> find(String value) {
+        Set<String> ids = valueToIds.get(value);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    void update(String groupId, String value) {
+        String previous = value == null ? idToValue.remove(groupId) : idToValue.put(groupId, value);
+
+        if (previous != null && !previous.equals(value)) {
+            valueToIds.computeIfPresent(previous, (v, ids) -> {
+                ids.remove(groupId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+
+        if (value != null) {
+            valueToIds.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(groupId);
+        }
+    }
+
+    void remove(String groupId) {
+        update(groupId, null);
+    }
+}
@@ -0,0 +1,54 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the group identifier from a resource name, URI or attribute value.
+ * Patterns containing a {@code {group}} placeholder are compiled to a
+ * {@link PathTemplate}, any other pattern is a regular expression whose first
+ * capturing group is the identifier. Several patterns of one policy are
+ * compiled to a {@link CombinedGroupIdentifierPattern}.
+ */
+@FunctionalInterface
+interface GroupIdentifierPattern {
+    /**
+     * Returns the group identifier contained in the value, or {@code null} if
+     * the value does not match.
+     */
+    String extract(String value);
+
+    static GroupIdentifierPattern compile(String pattern) {
+        if (PathTemplate.isTemplate(pattern)) {
+            return PathTemplate.compile(pattern);
+        }
+
+        Pattern regex = compileRegex(pattern);
+        return value -> {
+            Matcher matcher = regex.matcher(value);
+            return matcher.matches() ? matcher.group(1) : null;
+        };
+    }
+
+    /**
+     * Compiles a regular expression pattern, rejecting it if it has no
+     * capturing group to hold the identifier.
+     */
+    static Pattern compileRegex(String pattern) {
+        Pattern regex = Pattern.compile(pattern);
+        if (regex.matcher("").groupCount() == 0) {
+            throw new IllegalArgumentException("Pattern " + pattern + " must contain a capturing group");
+        }
+
+        return regex;
+    }
+
+    static GroupIdentifierPattern compile(List<String> patterns) {
+        if (patterns.size() == 1) {
+            return compile(patterns.get(0));
+        }
+
+        return CombinedGroupIdentifierPattern.compile(patterns);
+    }
+}
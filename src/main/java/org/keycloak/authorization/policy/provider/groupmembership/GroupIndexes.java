@@ -0,0 +1,458 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Holds the {@link RealmGroupIndex} and {@link GroupAttributeIndex}es of every
+ * realm that evaluated a group membership policy, which resolve group paths,
+ * names and attributes without querying the group provider. Indexes are built lazily on
+ * first use and kept current from group path change and removal events.
+ *
+ * <p>
+ * Keycloak publishes no event when a group is created, moved to another
+ * parent or has its attributes changed, so the indexes are only trusted as far
+ * as the group model confirms them. A path hit is checked against the parents
+ * of the group it resolves to, and the segments past the deepest indexed
+ * group are looked up among its subgroups, which finds the groups created or
+ * moved there since the index was built. An index that places a group
+ * elsewhere than the group model does is rebuilt. Name and attribute hits are
+ * checked against the group, and a lookup that misses an index older than the
+ * refresh interval rebuilds it once before giving up.
+ *
+ * <p>
+ * Each realm also counts the group changes applied to it. An index build that
+ * overlapped a change is repeated, so it cannot reinstate the tree as it was
+ * before the change. A build still overlapping changes after a few attempts
+ * only serves the lookup that made it, and the realm keeps its previous
+ * index, or builds again on the next lookup if it has none.
+ */
+final class GroupIndexes {
+    private static final Logger logger = Logger.getLogger(GroupIndexes.class);
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+    private static final char SEPARATOR = '/';
+
+    private final ConcurrentMap<String, RealmIndexHolder> realms = new ConcurrentHashMap<>();
+    private final long refreshIntervalMillis;
+
+    GroupIndexes(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    RealmGroupIndex get(RealmModel realm, GroupProvider groupProvider) {
+        return holder(realm.getId()).get(realm, groupProvider);
+    }
+
+    /**
+     * Returns the group at {@code path} and every ancestor group, from the
+     * top-level group down, as the group model has them. The index is rebuilt
+     * when it turns out to place a group elsewhere, and the groups are then
+     * resolved from the group model alone should it still disagree.
+     */
+    List<GroupModel> findByPathOrAncestors(RealmModel realm, GroupProvider groupProvider, String path) {
+        RealmIndexHolder holder = holder(realm.getId());
+        RealmGroupIndex index = holder.get(realm, groupProvider);
+        List<GroupModel> groups = resolvePath(index, realm, groupProvider, path);
+
+        if (groups == null) {
+            index = holder.rebuild(realm, groupProvider, index);
+            groups = resolvePath(index, realm, groupProvider, path);
+            if (groups == null) {
+                groups = resolvePath(null, realm, groupProvider, path);
+            }
+        } else if (!groups.isEmpty() && index.getOrdinal(groups.get(groups.size() - 1).getId()) == -1
+                && isStale(index.getCreatedAt())) {
+            holder.rebuild(realm, groupProvider, index);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Returns the groups named {@code name}, building the realm index first if
+     * needed. The group provider cannot be asked instead, as its exact name
+     * search returns the top-level ancestor of each matching subgroup.
+     */
+    List<GroupModel> findByName(RealmModel realm, GroupProvider groupProvider, String name) {
+        RealmIndexHolder holder = holder(realm.getId());
+        RealmGroupIndex index = holder.get(realm, groupProvider);
+
+        List<GroupModel> groups = resolveByName(index, realm, groupProvider, name);
+        if (groups.isEmpty() && isStale(index.getCreatedAt())) {
+            index = holder.rebuild(realm, groupProvider, index);
+            groups = resolveByName(index, realm, groupProvider, name);
+        }
+
+        return groups;
+    }
+
+    boolean isBuilt(String realmId) {
+        return current(realmId) != null;
+    }
+
+    List<GroupModel> findByAttribute(RealmModel realm, GroupProvider groupProvider, String attributeName,
+            String value) {
+        RealmIndexHolder holder = holder(realm.getId());
+        GroupAttributeIndex index = holder.getAttributeIndex(realm, groupProvider, attributeName);
+        List<GroupModel> groups = resolve(index, realm, groupProvider, attributeName, value);
+
+        if (groups.isEmpty() && isStale(index.getCreatedAt())) {
+            index = holder.rebuildAttributeIndex(realm, groupProvider, attributeName, index);
+            groups = resolve(index, realm, groupProvider, attributeName, value);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Builds the realm index and the attribute indexes for the given
+     * attributes unless they are already built.
+     */
+    void warmUp(RealmModel realm, GroupProvider groupProvider, Collection<String> attributeNames) {
+        RealmIndexHolder holder = holder(realm.getId());
+        holder.get(realm, groupProvider);
+        for (String attributeName : attributeNames) {
+            holder.getAttributeIndex(realm, groupProvider, attributeName);
+        }
+    }
+
+    /**
+     * Returns the path of the group in the group model, taken from the realm
+     * index when the parents of the group confirm it. An index that has the
+     * group at another path is discarded.
+     */
+    String getPath(RealmModel realm, GroupModel group) {
+        RealmIndexHolder holder = realms.get(realm.getId());
+        RealmGroupIndex index = holder == null ? null : holder.index;
+        if (index != null) {
+            String path = index.getPath(group.getId());
+            if (path != null) {
+                if (isPathOf(path, group)) {
+                    return path;
+                }
+                holder.discard(index);
+            }
+        }
+
+        return ancestry(group).getPath();
+    }
+
+    /**
+     * Drops the realm index if it is still the given one, so the next lookup
+     * builds it again. Returns whether it was dropped.
+     */
+    boolean discard(String realmId, RealmGroupIndex index) {
+        RealmIndexHolder holder = realms.get(realmId);
+        return holder != null && holder.discard(index);
+    }
+
+    /**
+     * Returns the ancestry of a group as the group model has it now.
+     */
+    static GroupAncestry ancestry(GroupModel group) {
+        List<String> names = new ArrayList<>();
+        for (GroupModel current = group; current != null; current = current.getParent()) {
+            names.add(current.getName());
+        }
+
+        String[] ancestry = new String[names.size()];
+        for (int i = 0; i < ancestry.length; i++) {
+            ancestry[i] = names.get(ancestry.length - 1 - i);
+        }
+
+        return GroupAncestry.of(ancestry);
+    }
+
+    /**
+     * Returns whether {@code path} is the path of the group in the group
+     * model, comparing it against the names of the group and its parents in
+     * place.
+     */
+    static boolean isPathOf(String path, GroupModel group) {
+        return matchPath(path, group, null);
+    }
+
+    void onPathChanged(String realmId, String previousPath, String newPath) {
+        RealmIndexHolder holder = realms.get(realmId);
+        if (holder == null) {
+            return;
+        }
+
+        holder.version.incrementAndGet();
+
+        RealmGroupIndex index = holder.index;
+        if (index != null) {
+            index.onPathChanged(previousPath, newPath);
+        }
+    }
+
+    void onRemoved(String realmId, String groupId) {
+        RealmIndexHolder holder = realms.get(realmId);
+        if (holder == null) {
+            return;
+        }
+
+        holder.version.incrementAndGet();
+
+        RealmGroupIndex index = holder.index;
+        if (index != null) {
+            index.onRemoved(groupId);
+        }
+
+        for (GroupAttributeIndex attributeIndex : holder.attributes.values()) {
+            attributeIndex.remove(groupId);
+        }
+    }
+
+    void invalidate(String realmId) {
+        RealmIndexHolder holder = realms.remove(realmId);
+        if (holder != null) {
+            holder.version.incrementAndGet();
+        }
+    }
+
+    void clear() {
+        realms.clear();
+    }
+
+    private RealmIndexHolder holder(String realmId) {
+        return realms.computeIfAbsent(realmId, id -> new RealmIndexHolder());
+    }
+
+    private RealmGroupIndex current(String realmId) {
+        RealmIndexHolder holder = realms.get(realmId);
+        return holder == null ? null : holder.index;
+    }
+
+    /**
+     * Resolves the group at {@code path} and its ancestors, trusting the index
+     * only as far as the parents of the deepest indexed group confirm it. The
+     * segments past that group are looked up among its subgroups in the group
+     * model. Returns {@code null} when the index places a group elsewhere than
+     * the group model does, and resolves every segment from the group model
+     * when no index is given.
+     */
+    private static List<GroupModel> resolvePath(RealmGroupIndex index, RealmModel realm,
+            GroupProvider groupProvider, String path) {
+        if (path.isEmpty() || path.charAt(0) != SEPARATOR) {
+            return Collections.emptyList();
+        }
+
+        List<GroupModel> groups = new ArrayList<>();
+        int resolved = 0;
+
+        if (index != null) {
+            List<String> ids = index.findByPathOrAncestors(path);
+            for (int i = ids.size() - 1; i >= 0 && resolved == 0; i--) {
+                String id = ids.get(i);
+                String indexed = index.getPath(id);
+                GroupModel group = groupProvider.getGroupById(realm, id);
+                if (indexed == null || group == null) {
+                    index.remove(id);
+                    continue;
+                }
+
+                if (!matchPath(indexed, group, groups)) {
+                    return null;
+                }
+                Collections.reverse(groups);
+                resolved = indexed.length();
+            }
+        }
+
+        GroupModel parent = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        for (int start = resolved + 1; start <= path.length();) {
+            int end = path.indexOf(SEPARATOR, start);
+            if (end == -1) {
+                end = path.length();
+            }
+
+            GroupModel child = findChild(realm, groupProvider, parent, path.substring(start, end));
+            if (child == null) {
+                break;
+            }
+
+            // an indexed group found at a path the index does not have was moved without an event
+            if (index != null && index.getOrdinal(child.getId()) != -1) {
+                return null;
+            }
+
+            groups.add(child);
+            parent = child;
+            start = end + 1;
+        }
+
+        return groups;
+    }
+
+    private static GroupModel findChild(RealmModel realm, GroupProvider groupProvider, GroupModel parent,
+            String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+
+        try (Stream<GroupModel> children = parent == null
+                ? groupProvider.getTopLevelGroupsStream(realm, name, true, null, null)
+                : parent.getSubGroupsStream(name, true, null, null)) {
+            return children.filter(child -> name.equals(child.getName())).findFirst().orElse(null);
+        }
+    }
+
+    /**
+     * Compares {@code path} against the names of the group and its parents,
+     * from the end, adding the group and its ancestors to {@code ancestors}
+     * from the group up when a list is given.
+     */
+    private static boolean matchPath(String path, GroupModel group, List<GroupModel> ancestors) {
+        int end = path.length();
+
+        for (GroupModel current = group; current != null; current = current.getParent()) {
+            String name = current.getName();
+            int start = end - name.length();
+            if (start < 1 || path.charAt(start - 1) != SEPARATOR || !path.regionMatches(start, name, 0, name.length())) {
+                return false;
+            }
+
+            if (ancestors != null) {
+                ancestors.add(current);
+            }
+            end = start - 1;
+        }
+
+        return end == 0;
+    }
+
+    private boolean isStale(long createdAt) {
+        return System.currentTimeMillis() - createdAt > refreshIntervalMillis;
+    }
+
+    private static List<GroupModel> resolve(GroupAttributeIndex index, RealmModel realm,
+            GroupProvider groupProvider, String attributeName, String value) {
+        List<GroupModel> groups = new ArrayList<>();
+
+        for (String id : index.find(value)) {
+            GroupModel group = groupProvider.getGroupById(realm, id);
+            if (group == null) {
+                index.remove(id);
+                continue;
+            }
+
+            String current = group.getFirstAttribute(attributeName);
+            if (value.equals(current)) {
+                groups.add(group);
+            } else {
+                index.update(id, current);
+            }
+        }
+
+        return groups;
+    }
+
+    private static List<GroupModel> resolveByName(RealmGroupIndex index, RealmModel realm,
+            GroupProvider groupProvider, String name) {
+        List<GroupModel> groups = new ArrayList<>();
+
+        for (String id : index.findByName(name)) {
+            GroupModel group = groupProvider.getGroupById(realm, id);
+            if (group == null) {
+                index.remove(id);
+            } else if (name.equals(group.getName())) {
+                groups.add(group);
+            }
+        }
+
+        return groups;
+    }
+
+    private static final class RealmIndexHolder {
+        private final ConcurrentMap<String, GroupAttributeIndex> attributes = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+        private volatile RealmGroupIndex index;
+
+        RealmGroupIndex get(RealmModel realm, GroupProvider groupProvider) {
+            RealmGroupIndex current = index;
+            if (current != null) {
+                return current;
+            }
+
+            return rebuild(realm, groupProvider, null);
+        }
+
+        synchronized RealmGroupIndex rebuild(RealmModel realm, GroupProvider groupProvider,
+                RealmGroupIndex expected) {
+            if (index != expected && index != null) {
+                return index;
+            }
+
+            // a build that overlapped a group change may have read the tree before it, so build again
+            long start = System.currentTimeMillis();
+            RealmGroupIndex built;
+            long builtVersion;
+            int attempts = 0;
+            do {
+                builtVersion = version.get();
+                built = RealmGroupIndex.build(groupProvider, realm);
+            } while (builtVersion != version.get() && ++attempts < MAX_BUILD_ATTEMPTS);
+
+            if (builtVersion != version.get()) {
+                // still overlapping, so serve this lookup but leave the index to the next one
+                logger.debugf("Group index for realm %s overlapped group changes %d times, not installed",
+                        realm.getName(), attempts);
+                return index == null ? built : index;
+            }
+
+            index = built;
+            logger.debugf("Built group index for realm %s with %d groups in %d ms", realm.getName(), index.size(),
+                    System.currentTimeMillis() - start);
+
+            return index;
+        }
+
+        synchronized boolean discard(RealmGroupIndex expected) {
+            if (index != expected) {
+                return false;
+            }
+
+            index = null;
+            version.incrementAndGet();
+
+            return true;
+        }
+
+        GroupAttributeIndex getAttributeIndex(RealmModel realm, GroupProvider groupProvider, String attributeName) {
+            GroupAttributeIndex current = attributes.get(attributeName);
+            if (current != null) {
+                return current;
+            }
+
+            return rebuildAttributeIndex(realm, groupProvider, attributeName, null);
+        }
+
+        synchronized GroupAttributeIndex rebuildAttributeIndex(RealmModel realm, GroupProvider groupProvider,
+                String attributeName, GroupAttributeIndex expected) {
+            GroupAttributeIndex current = attributes.get(attributeName);
+            if (current != expected) {
+                return current;
+            }
+
+            long start = System.currentTimeMillis();
+            current = GroupAttributeIndex.build(groupProvider, realm, attributeName);
+            attributes.put(attributeName, current);
+            logger.debugf("Built group attribute index for attribute %s of realm %s with %d groups in %d ms",
+                    attributeName, realm.getName(), current.size(), System.currentTimeMillis() - start);
+
+            return current;
+        }
+    }
+}
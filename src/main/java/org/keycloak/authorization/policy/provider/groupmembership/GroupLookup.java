@@ -0,0 +1,58 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the groups of a realm by the keys a {@link GroupMembershipMatcher}
+ * resolves group identifiers with. The evaluation implements it over the
+ * realm group indexes, offline tools over the groups of a realm export.
+ *
+ * @param <G> the group type
+ */
+public interface GroupLookup<G> {
+    /**
+     * Returns the group with the given id, or {@code null} if there is none.
+     */
+    G findById(String id);
+
+    List<G> findByName(String name);
+
+    /**
+     * Returns the group with the given full path, or {@code null} if there is
+     * none.
+     */
+    G findByPath(String path);
+
+    List<G> findByAttribute(String attributeName, String value);
+
+    /**
+     * Returns the group at {@code path} and every ancestor group whose path is
+     * a segment prefix of it, from the top-level group down.
+     */
+    default List<G> findByPathOrAncestors(String path) {
+        List<G> groups = null;
+
+        for (int i = path.indexOf('/', 1); i != -1; i = path.indexOf('/', i + 1)) {
+            groups = add(groups, findByPath(path.substring(0, i)));
+        }
+
+        groups = add(groups, findByPath(path));
+
+        return groups == null ? Collections.emptyList() : groups;
+    }
+
+    private static <G> List<G> add(List<G> groups, G group) {
+        if (group == null) {
+            return groups;
+        }
+
+        if (groups == null) {
+            groups = new ArrayList<>(4);
+        }
+        groups.add(group);
+
+        return groups;
+    }
+}
@@ -0,0 +1,177 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+/**
+ * Matching rules of a group membership policy, independent of Keycloak: which
+ * resource values name groups, how a {@link GroupIdentifierPattern} extracts
+ * the group identifiers from them, and how a {@link GroupMatchTarget} resolves
+ * the identifiers to groups. Together with {@link ClaimedGroups} it decides a
+ * policy the same way the evaluation does, so it is also used to audit realm
+ * exports offline.
+ *
+ * <p>
+ * Instances are immutable and shared between threads.
+ */
+public final class GroupMembershipMatcher {
+    private final ResourceMatchTarget resourceMatchTarget;
+    private final GroupMatchTarget groupMatchTarget;
+    private final String groupMatchAttributeName;
+    private final GroupIdentifierPattern pattern;
+
+    private GroupMembershipMatcher(ResourceMatchTarget resourceMatchTarget, GroupMatchTarget groupMatchTarget,
+            String groupMatchAttributeName, GroupIdentifierPattern pattern) {
+        this.resourceMatchTarget = resourceMatchTarget;
+        this.groupMatchTarget = groupMatchTarget;
+        this.groupMatchAttributeName = groupMatchAttributeName;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles the matching rules of a policy. The patterns are tried in the
+     * given order; without any, resource values are group identifiers as is.
+     *
+     * @throws java.util.regex.PatternSyntaxException if a pattern is invalid
+     */
+    public static GroupMembershipMatcher compile(ResourceMatchTarget resourceMatchTarget,
+            GroupMatchTarget groupMatchTarget, String groupMatchAttributeName, List<String> patterns) {
+        return new GroupMembershipMatcher(resourceMatchTarget, groupMatchTarget, groupMatchAttributeName,
+                patterns == null || patterns.isEmpty() ? null : GroupIdentifierPattern.compile(patterns));
+    }
+
+    public ResourceMatchTarget getResourceMatchTarget() {
+        return resourceMatchTarget;
+    }
+
+    public GroupMatchTarget getGroupMatchTarget() {
+        return groupMatchTarget;
+    }
+
+    public String getGroupMatchAttributeName() {
+        return groupMatchAttributeName;
+    }
+
+    public boolean hasPattern() {
+        return pattern != null;
+    }
+
+    /**
+     * Returns the name of the resource attribute whose values name groups
+     * under {@link ResourceMatchTarget#ATTRIBUTE}. Policies have always read
+     * the attribute named by the group match attribute name.
+     */
+    public String getResourceAttributeName() {
+        return groupMatchAttributeName;
+    }
+
+    /**
+     * Returns the group identifier a resource value refers to, or {@code null}
+     * if the value does not match the pattern of the policy.
+     */
+    public String extractIdentifier(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        return pattern == null ? value : pattern.extract(value);
+    }
+
+    /**
+     * Returns the distinct group identifiers a resource refers to, in the order
+     * they are tried: the resource name, URIs or attribute values, reduced to
+     * the identifier extracted by the pattern when there is one.
+     */
+    public List<String> extractIdentifiers(String name, Collection<String> uris,
+            Map<String, List<String>> attributes) {
+        Collection<String> values;
+
+        switch (resourceMatchTarget) {
+            case NAME:
+                values = name == null ? Collections.emptyList() : Collections.singletonList(name);
+                break;
+            case URI:
+                values = uris;
+                break;
+            case ATTRIBUTE:
+                String attributeName = getResourceAttributeName();
+                values = attributeName == null || attributes == null ? null : attributes.get(attributeName);
+                break;
+            default:
+                values = null;
+        }
+
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> identifiers = new LinkedHashSet<>();
+        for (String value : values) {
+            String identifier = extractIdentifier(value);
+            if (identifier != null) {
+                identifiers.add(identifier);
+            }
+        }
+
+        return new ArrayList<>(identifiers);
+    }
+
+    /**
+     * Returns the groups a group identifier resolves to under the group match
+     * target of the policy. Paths resolve to the group and all its ancestors,
+     * and identifiers without a {@code /} are taken as names under
+     * {@link GroupMatchTarget#PATH}.
+     */
+    public <G> List<G> resolveGroups(String identifier, GroupLookup<G> lookup) {
+        switch (groupMatchTarget) {
+            case ID:
+                G group = lookup.findById(identifier);
+                return group == null ? Collections.emptyList() : Collections.singletonList(group);
+            case NAME:
+                return lookup.findByName(identifier);
+            case PATH:
+                if (identifier.indexOf('/') != -1) {
+                    return lookup.findByPathOrAncestors(identifier);
+                }
+
+                return lookup.findByName(identifier);
+            case ATTRIBUTE:
+                if (groupMatchAttributeName == null) {
+                    return Collections.emptyList();
+                }
+
+                return lookup.findByAttribute(groupMatchAttributeName, identifier);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the distinct groups a resource grants access to, in the order
+     * its identifiers are tried.
+     */
+    public <G> List<G> resolveAllowedGroups(String name, Collection<String> uris,
+            Map<String, List<String>> attributes, GroupLookup<G> lookup) {
+        Set<G> groups = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<G> allowedGroups = new ArrayList<>();
+
+        for (String identifier : extractIdentifiers(name, uris, attributes)) {
+            for (G group : resolveGroups(identifier, lookup)) {
+                if (groups.add(group)) {
+                    allowedGroups.add(group);
+                }
+            }
+        }
+
+        return allowedGroups;
+    }
+}
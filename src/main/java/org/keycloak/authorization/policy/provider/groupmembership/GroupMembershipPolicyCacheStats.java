@@ -0,0 +1,72 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+final class GroupMembershipPolicyCacheStats implements GroupMembershipPolicyCacheStatsMXBean {
+    private final CompiledPolicyCache policies;
+    private final GroupIndexes groupIndexes;
+    private final ResourceGroupCache resourceGroups;
+    private final ClaimGroupsCache claimGroups;
+    private final DecisionCache decisions;
+
+    GroupMembershipPolicyCacheStats(CompiledPolicyCache policies, GroupIndexes groupIndexes,
+            ResourceGroupCache resourceGroups, ClaimGroupsCache claimGroups, DecisionCache decisions) {
+        this.policies = policies;
+        this.groupIndexes = groupIndexes;
+        this.resourceGroups = resourceGroups;
+        this.claimGroups = claimGroups;
+        this.decisions = decisions;
+    }
+
+    @Override
+    public long getResourceCacheHits() {
+        return resourceGroups.getHits();
+    }
+
+    @Override
+    public long getResourceCacheMisses() {
+        return resourceGroups.getMisses();
+    }
+
+    @Override
+    public int getResourceCacheSize() {
+        return resourceGroups.size();
+    }
+
+    @Override
+    public long getClaimCacheHits() {
+        return claimGroups.getHits();
+    }
+
+    @Override
+    public long getClaimCacheMisses() {
+        return claimGroups.getMisses();
+    }
+
+    @Override
+    public int getClaimCacheSize() {
+        return claimGroups.size();
+    }
+
+    @Override
+    public long getDecisionCacheHits() {
+        return decisions.getHits();
+    }
+
+    @Override
+    public long getDecisionCacheMisses() {
+        return decisions.getMisses();
+    }
+
+    @Override
+    public int getDecisionCacheSize() {
+        return decisions.size();
+    }
+
+    @Override
+    public void clearCaches() {
+        policies.clear();
+        groupIndexes.clear();
+        resourceGroups.clear();
+        claimGroups.clear();
+        decisions.clear();
+    }
+}
@@ -0,0 +1,26 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * JMX view of the caches kept by the group membership policy provider.
+ */
+public interface GroupMembershipPolicyCacheStatsMXBean {
+    long getResourceCacheHits();
+
+    long getResourceCacheMisses();
+
+    int getResourceCacheSize();
+
+    long getClaimCacheHits();
+
+    long getClaimCacheMisses();
+
+    int getClaimCacheSize();
+
+    long getDecisionCacheHits();
+
+    long getDecisionCacheMisses();
+
+    int getDecisionCacheSize();
+
+    void clearCaches();
+}
@@ -0,0 +1,89 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import org.keycloak.cluster.ClusterEvent;
+
+/**
+ * Cluster message asking the other nodes to drop what they cached about a
+ * policy, resource server, realm or group after it changed on the sending
+ * node.
+ */
+public class GroupMembershipPolicyInvalidationEvent implements ClusterEvent {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        POLICY_UPDATED,
+        POLICY_REMOVED,
+        RESOURCE_SERVER_REMOVED,
+        REALM_REMOVED,
+        GROUP_PATH_CHANGED,
+        GROUP_REMOVED
+    }
+
+    private final Type type;
+    private final String realmId;
+    private final String id;
+    private final String previousPath;
+    private final String newPath;
+
+    private GroupMembershipPolicyInvalidationEvent(Type type, String realmId, String id, String previousPath,
+            String newPath) {
+        this.type = type;
+        this.realmId = realmId;
+        this.id = id;
+        this.previousPath = previousPath;
+        this.newPath = newPath;
+    }
+
+    static GroupMembershipPolicyInvalidationEvent policyUpdated(String policyId) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.POLICY_UPDATED, null, policyId, null, null);
+    }
+
+    static GroupMembershipPolicyInvalidationEvent policyRemoved(String policyId) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.POLICY_REMOVED, null, policyId, null, null);
+    }
+
+    static GroupMembershipPolicyInvalidationEvent resourceServerRemoved(String resourceServerId) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.RESOURCE_SERVER_REMOVED, null, resourceServerId,
+                null, null);
+    }
+
+    static GroupMembershipPolicyInvalidationEvent realmRemoved(String realmId) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.REALM_REMOVED, realmId, null, null, null);
+    }
+
+    static GroupMembershipPolicyInvalidationEvent groupPathChanged(String realmId, String previousPath,
+            String newPath) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.GROUP_PATH_CHANGED, realmId, null, previousPath,
+                newPath);
+    }
+
+    static GroupMembershipPolicyInvalidationEvent groupRemoved(String realmId, String groupId) {
+        return new GroupMembershipPolicyInvalidationEvent(Type.GROUP_REMOVED, realmId, groupId, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPreviousPath() {
+        return previousPath;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMembershipPolicyInvalidationEvent [type=" + type + ", realmId=" + realmId + ", id=" + id
+                + ", previousPath=" + previousPath + ", newPath=" + newPath + "]";
+    }
+}
@@ -0,0 +1,63 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.keycloak.authorization.model.Policy;
+
+/**
+ * Registry of the {@link PolicyMetrics} of every evaluated policy.
+ */
+final class GroupMembershipPolicyMetrics implements GroupMembershipPolicyMetricsMXBean {
+    private final ConcurrentMap<String, PolicyMetrics> policies = new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    GroupMembershipPolicyMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    PolicyMetrics get(Policy policy, String realmId) {
+        if (!enabled) {
+            return PolicyMetrics.DISABLED;
+        }
+
+        PolicyMetrics metrics = policies.get(policy.getId());
+        if (metrics != null) {
+            return metrics;
+        }
+
+        return policies.computeIfAbsent(policy.getId(), id -> new PolicyMetrics(id, policy.getName(), realmId));
+    }
+
+    List<PolicyStatistics> getPolicies(String realmId) {
+        return policies.values().stream()
+                .filter(metrics -> realmId.equals(metrics.getRealmId()))
+                .map(PolicyMetrics::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    void remove(String policyId) {
+        policies.remove(policyId);
+    }
+
+    void removeRealm(String realmId) {
+        policies.values().removeIf(metrics -> realmId.equals(metrics.getRealmId()));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public List<PolicyStatistics> getPolicies() {
+        return policies.values().stream().map(PolicyMetrics::snapshot).collect(Collectors.toList());
+    }
+
+    @Override
+    public void reset() {
+        policies.clear();
+    }
+}
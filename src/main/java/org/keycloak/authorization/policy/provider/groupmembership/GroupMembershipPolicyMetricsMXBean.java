@@ -0,0 +1,14 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.List;
+
+/**
+ * JMX view of the per-policy evaluation metrics.
+ */
+public interface GroupMembershipPolicyMetricsMXBean {
+    boolean isEnabled();
+
+    List<PolicyStatistics> getPolicies();
+
+    void reset();
+}
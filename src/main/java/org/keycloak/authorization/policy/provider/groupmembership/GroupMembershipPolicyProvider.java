@@ -1,244 +1,741 @@
 package org.keycloak.authorization.policy.provider.groupmembership;
 
-import static org.keycloak.models.utils.ModelToRepresentation.buildGroupPath;
-
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.function.BiFunction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.keycloak.authorization.AuthorizationProvider;
 import org.keycloak.authorization.attribute.Attributes;
 import org.keycloak.authorization.attribute.Attributes.Entry;
-import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.identity.Identity;
 import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.model.ResourceServer;
 import org.keycloak.authorization.policy.evaluation.Evaluation;
 import org.keycloak.authorization.policy.provider.PolicyProvider;
 import org.keycloak.models.GroupModel;
 import org.keycloak.models.GroupProvider;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
-import org.keycloak.representations.idm.authorization.GroupMembershipPolicyRepresentation;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
 
 public class GroupMembershipPolicyProvider implements PolicyProvider {
-    private final BiFunction<Policy, AuthorizationProvider, GroupMembershipPolicyRepresentation> representationFunction;
-
-    public GroupMembershipPolicyProvider(
-            BiFunction<Policy, AuthorizationProvider, GroupMembershipPolicyRepresentation> representationFunction) {
-        this.representationFunction = representationFunction;
+    private final CompiledPolicyCache policies;
+    private final GroupIndexes groupIndexes;
+    private final ResourceGroupCache resourceGroups;
+    private final ClaimGroupsCache claimGroups;
+    private final DecisionCache decisions;
+    private final GroupMembershipPolicyMetrics metrics;
+    private final int bulkThreshold;
+    private final int bulkMaxResources;
+
+    GroupMembershipPolicyProvider(CompiledPolicyCache policies, GroupIndexes groupIndexes,
+            ResourceGroupCache resourceGroups, ClaimGroupsCache claimGroups, DecisionCache decisions,
+            GroupMembershipPolicyMetrics metrics, int bulkThreshold, int bulkMaxResources) {
+        this.policies = policies;
+        this.groupIndexes = groupIndexes;
+        this.resourceGroups = resourceGroups;
+        this.claimGroups = claimGroups;
+        this.decisions = decisions;
+        this.metrics = metrics;
+        this.bulkThreshold = bulkThreshold;
+        this.bulkMaxResources = bulkMaxResources;
     }
 
     @Override
     public void evaluate(Evaluation evaluation) {
-        AuthorizationProvider authorizationProvider = evaluation.getAuthorizationProvider();
-        GroupMembershipPolicyRepresentation policy = representationFunction.apply(evaluation.getPolicy(),
-                authorizationProvider);
+        PolicyEvaluationEvent event = new PolicyEvaluationEvent();
+        event.begin();
 
+        AuthorizationProvider authorizationProvider = evaluation.getAuthorizationProvider();
         RealmModel realm = authorizationProvider.getRealm();
-        GroupProvider groupProvider = authorizationProvider.getKeycloakSession().groups();
-        List<GroupModel> allowedGroups = matchResourceGroups(evaluation.getPermission().getResource(), groupProvider,
-                realm, policy);
+        PolicyMetrics metrics = this.metrics.get(evaluation.getPolicy(), realm.getId());
+        long start = metrics.start();
+
+        CompiledGroupMembershipPolicy policy = policies.get(evaluation.getPolicy(), authorizationProvider);
+        metrics.record(EvaluationPhase.POLICY, start);
+
+        Resource resource = evaluation.getPermission().getResource();
+        EvaluationOutcome outcome;
+        if (resource == null) {
+            metrics.noMatch();
+            metrics.record(EvaluationPhase.TOTAL, start);
+            outcome = EvaluationOutcome.NO_MATCH;
+        } else if (policy.isDecisionCacheEnabled() && decisions.isEnabled()) {
+            outcome = decideCached(evaluation, authorizationProvider, resource, realm, policy, metrics, start, event);
+        } else {
+            outcome = decide(evaluation, authorizationProvider, resource, realm, policy, metrics, start);
+        }
+
+        if (outcome == EvaluationOutcome.GRANTED) {
+            evaluation.grant();
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.policyId = policy.getPolicyId();
+            event.realmId = realm.getId();
+            event.resourceId = resource == null ? null : resource.getId();
+            event.resourceMatchTarget = String.valueOf(policy.getResourceMatchTarget());
+            event.groupMatchTarget = String.valueOf(policy.getGroupMatchTarget());
+            event.outcome = outcome.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Decides through the {@link DecisionCache}, for the policies that enable
+     * it. Cached decisions are counted without any group scanned.
+     */
+    private EvaluationOutcome decideCached(Evaluation evaluation, AuthorizationProvider authorizationProvider,
+            Resource resource, RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics,
+            long start, PolicyEvaluationEvent event) {
+        UserGroups userGroups = resolveUserGroups(evaluation, authorizationProvider.getKeycloakSession(), policy);
+        Object fingerprint = resourceFingerprint(resource, policy);
+        EvaluationOutcome cached = decisions.get(policy, resource.getId(), userGroups, fingerprint);
+        if (cached != null) {
+            metrics.record(EvaluationPhase.TOTAL, start);
+            switch (cached) {
+                case GRANTED:
+                    metrics.granted(0);
+                    break;
+                case DENIED:
+                    metrics.denied(0);
+                    break;
+                case NO_MATCH:
+                    metrics.noMatch();
+                    break;
+            }
+            event.decisionCached = true;
+            return cached;
+        }
+
+        long version = decisions.version(policy.getPolicyId(), realm.getId());
+        EvaluationOutcome outcome = decide(evaluation, authorizationProvider, resource, realm, policy, metrics,
+                start);
+        decisions.put(policy, resource.getId(), realm.getId(), userGroups, copyOf(fingerprint), outcome, version);
+
+        return outcome;
+    }
+
+    private EvaluationOutcome decide(Evaluation evaluation, AuthorizationProvider authorizationProvider,
+            Resource resource, RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics,
+            long start) {
+        AllowedGroups allowedGroups = resolveAllowedGroups(authorizationProvider, resource, realm, policy, metrics);
         if (allowedGroups == null) {
-            return;
+            return decideLazily(evaluation, authorizationProvider.getKeycloakSession(), resource, realm, policy,
+                    metrics, start);
         }
 
-        Attributes.Entry groupsClaim = evaluation.getContext().getIdentity().getAttributes()
-                .getValue(policy.getGroupsClaim());
-        if (groupsClaim == null || groupsClaim.isEmpty()) {
-            List<String> userGroups = evaluation.getRealm()
-                    .getUserGroups(evaluation.getContext().getIdentity().getId());
-            groupsClaim = new Entry(policy.getGroupsClaim(), userGroups);
+        if (allowedGroups.isEmpty()) {
+            metrics.noMatch();
+            metrics.record(EvaluationPhase.TOTAL, start);
+            return EvaluationOutcome.NO_MATCH;
         }
 
-        for (GroupModel groupModel : allowedGroups) {
-            String allowedGroupPath = buildGroupPath(groupModel);
-            for (int i = 0; i < groupsClaim.size(); i++) {
-                String group = groupsClaim.asString(i);
+        MembershipCheckEvent event = new MembershipCheckEvent();
+        event.begin();
+        long membershipStart = metrics.start();
+        KeycloakSession session = authorizationProvider.getKeycloakSession();
+        UserGroups userGroups = resolveUserGroups(evaluation, session, policy);
+        boolean granted = !userGroups.isEmpty()
+                && isMemberOfAny(userGroups, allowedGroups, realm, session.groups());
+
+        metrics.record(EvaluationPhase.MEMBERSHIP, membershipStart);
+        metrics.record(EvaluationPhase.TOTAL, start);
+        commit(event, policy, allowedGroups.size(), userGroups, granted);
+        if (granted) {
+            metrics.granted(allowedGroups.size());
+            return EvaluationOutcome.GRANTED;
+        }
+
+        metrics.denied(userGroups.isEmpty() ? 0 : allowedGroups.size());
+
+        return EvaluationOutcome.DENIED;
+    }
 
-                if (group.indexOf('/') != -1) {
-                    if (isChildGroupOrSelf(allowedGroupPath, group)) {
-                        evaluation.grant();
-                        return;
+    /**
+     * Decides without materializing the allowed groups, used when they are
+     * not cached. Every group candidate is tested against the groups of the
+     * identity as soon as it is looked up, and the lookup stops at the first
+     * grant. Lookups and membership tests interleave, so their time is
+     * recorded under {@link EvaluationPhase#MEMBERSHIP}.
+     */
+    private EvaluationOutcome decideLazily(Evaluation evaluation, KeycloakSession session, Resource resource,
+            RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics, long start) {
+        MembershipCheckEvent event = new MembershipCheckEvent();
+        event.begin();
+        long membershipStart = metrics.start();
+        UserGroups userGroups = resolveUserGroups(evaluation, session, policy);
+        int scanned = 0;
+
+        if (!userGroups.isEmpty()) {
+            RealmGroupIndex index = groupIndexes.get(realm, session.groups());
+            try (Stream<GroupModel> candidates = matchResourceGroups(resource, session.groups(), realm, policy,
+                    metrics)) {
+                Iterator<GroupModel> iterator = candidates.iterator();
+                while (iterator.hasNext()) {
+                    GroupModel group = iterator.next();
+                    scanned++;
+
+                    int ordinal = index.getOrdinal(group.getId());
+                    if (ordinal != -1 && !isIndexedAt(index, group)) {
+                        onMovedWithoutEvent(realm, index);
+                        ordinal = -1;
                     }
-                }
 
-                if (group.equals(groupModel.getName())) {
-                    evaluation.grant();
-                    return;
+                    boolean member = ordinal == -1
+                            ? userGroups.isMemberOf(group.getName(), GroupIndexes.ancestry(group))
+                            : userGroups.isMemberOf(group.getName(), ordinal, index);
+                    if (member) {
+                        metrics.record(EvaluationPhase.MEMBERSHIP, membershipStart);
+                        metrics.record(EvaluationPhase.TOTAL, start);
+                        commit(event, policy, scanned, userGroups, true);
+                        metrics.granted(scanned);
+                        return EvaluationOutcome.GRANTED;
+                    }
                 }
             }
         }
+
+        metrics.record(EvaluationPhase.MEMBERSHIP, membershipStart);
+        metrics.record(EvaluationPhase.TOTAL, start);
+        commit(event, policy, scanned, userGroups, false);
+        if (scanned == 0 && !userGroups.isEmpty()) {
+            metrics.noMatch();
+            return EvaluationOutcome.NO_MATCH;
+        }
+
+        metrics.denied(scanned);
+
+        return EvaluationOutcome.DENIED;
+    }
+
+    /**
+     * Tests the allowed groups against the ancestor closure of the user
+     * groups once the group model confirms that both the index and the
+     * allowed groups still place every allowed group where it is. Keycloak
+     * publishes no event when a group is moved, so otherwise the allowed
+     * groups are tested against their ancestry in the model.
+     */
+    private boolean isMemberOfAny(UserGroups userGroups, AllowedGroups allowedGroups, RealmModel realm,
+            GroupProvider groupProvider) {
+        RealmGroupIndex index = groupIndexes.get(realm, groupProvider);
+        List<GroupModel> groups = new ArrayList<>(allowedGroups.size());
+        boolean current = true;
+
+        for (AllowedGroup allowedGroup : allowedGroups.getGroups()) {
+            GroupModel group = groupProvider.getGroupById(realm, allowedGroup.getId());
+            if (group == null) {
+                current = false;
+                continue;
+            }
+
+            groups.add(group);
+            String indexed = index.getPath(allowedGroup.getId());
+            if (indexed != null && !GroupIndexes.isPathOf(indexed, group)
+                    || !allowedGroup.getPath().equals(indexed)
+                            && !GroupIndexes.isPathOf(allowedGroup.getPath(), group)) {
+                current = false;
+            }
+        }
+
+        if (current) {
+            return userGroups.isMemberOfAny(allowedGroups, index);
+        }
+
+        onMovedWithoutEvent(realm, index);
+        for (GroupModel group : groups) {
+            if (userGroups.isMemberOf(group.getName(), GroupIndexes.ancestry(group))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isIndexedAt(RealmGroupIndex index, GroupModel group) {
+        String indexed = index.getPath(group.getId());
+        return indexed != null && GroupIndexes.isPathOf(indexed, group);
+    }
+
+    /**
+     * Drops the index of the realm and the allowed groups and decisions
+     * cached for it, once the group model shows that a group was moved or
+     * removed without the provider being told.
+     */
+    private void onMovedWithoutEvent(RealmModel realm, RealmGroupIndex index) {
+        groupIndexes.discard(realm.getId(), index);
+        resourceGroups.invalidateRealm(realm.getId());
+        decisions.invalidateRealm(realm.getId());
+    }
+
+    private static void commit(MembershipCheckEvent event, CompiledGroupMembershipPolicy policy, int candidates,
+            UserGroups userGroups, boolean granted) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.policyId = policy.getPolicyId();
+            event.candidates = candidates;
+            event.userGroups = userGroups.size();
+            event.granted = granted;
+            event.commit();
+        }
     }
 
     @Override
     public void close() {
     }
 
-    private static List<GroupModel> matchResourceGroups(Resource resource, GroupProvider groupProvider,
-            RealmModel realm, GroupMembershipPolicyRepresentation policy) {
-        switch (policy.getResourceMatchTarget()) {
-            case NAME:
-                return matchResourceGroupsByName(resource, groupProvider, realm, policy);
-            case URI:
-                return matchResourceGroupsByUris(resource, groupProvider, realm, policy);
-            case ATTRIBUTE:
-                return matchResourceGroupsByAttribute(resource, groupProvider, realm, policy);
-            default:
-                return null;
+    /**
+     * Resolves the groups of the identity being evaluated, memoized in the
+     * session so that an authorization request covering many permissions reads
+     * and normalizes them only once. Neither the memo nor the claim cache
+     * build a key, so resolving the groups of a known token allocates nothing
+     * beyond what reading its claims does.
+     */
+    private UserGroups resolveUserGroups(Evaluation evaluation, KeycloakSession session,
+            CompiledGroupMembershipPolicy policy) {
+        Identity identity = evaluation.getContext().getIdentity();
+        String identityId = identity.getId();
+        IdentityGroups memo = session.getAttribute(policy.getUserGroupsAttribute(), IdentityGroups.class);
+        if (memo != null && memo.identityId.equals(identityId)) {
+            return memo.groups;
+        }
+
+        Attributes attributes = identity.getAttributes();
+        String tokenId = claimGroups.isEnabled() ? tokenId(attributes) : null;
+        UserGroups userGroups = tokenId == null ? null
+                : claimGroups.get(tokenId, identityId, policy.getGroupsClaim());
+
+        if (userGroups == null) {
+            Attributes.Entry groupsClaim = attributes.getValue(policy.getGroupsClaim());
+            if (groupsClaim == null || groupsClaim.isEmpty()) {
+                List<String> groups = evaluation.getRealm().getUserGroups(identityId);
+                userGroups = UserGroups.from(new Entry(policy.getGroupsClaim(), groups));
+            } else {
+                userGroups = UserGroups.from(groupsClaim);
+                if (tokenId != null) {
+                    claimGroups.put(tokenId, identityId, policy.getGroupsClaim(), userGroups,
+                            tokenExpiry(attributes));
+                }
+            }
         }
+
+        session.setAttribute(policy.getUserGroupsAttribute(), new IdentityGroups(identityId, userGroups));
+
+        return userGroups;
     }
 
-    private static List<GroupModel> matchResourceGroupsByName(Resource resource, GroupProvider groupProvider,
-            RealmModel realm, GroupMembershipPolicyRepresentation policy) {
-        if (policy.getPattern() == null) {
-            return matchGroups(resource.getName(), groupProvider, realm, policy);
-        } else {
-            Pattern pattern = Pattern.compile(policy.getPattern());
-            Matcher matcher = pattern.matcher(resource.getName());
-            if (!matcher.matches()) {
+    /**
+     * Returns the id of the presented token, or {@code null} when it carries
+     * none to tell it apart from others.
+     */
+    private static String tokenId(Attributes attributes) {
+        Attributes.Entry tokenId = attributes.getValue("jti");
+        if (tokenId == null || tokenId.isEmpty()) {
+            return null;
+        }
+
+        return tokenId.asString(0);
+    }
+
+    private static long tokenExpiry(Attributes attributes) {
+        Attributes.Entry expiry = attributes.getValue("exp");
+        if (expiry == null || expiry.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(expiry.asLong(0));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the groups the resource grants access to, or {@code null} when
+     * they are neither cached nor resolved in bulk and the resource cache is
+     * disabled, in which case the caller resolves them lazily.
+     */
+    private AllowedGroups resolveAllowedGroups(AuthorizationProvider authorization, Resource resource,
+            RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics) {
+        GroupProvider groupProvider = authorization.getKeycloakSession().groups();
+        if (!resourceGroups.isEnabled()) {
+            return resolveInBatch(authorization, resource, groupProvider, realm, policy, metrics);
+        }
+
+        Object fingerprint = resourceFingerprint(resource, policy);
+        AllowedGroups allowedGroups = resourceGroups.get(policy, resource.getId(), fingerprint);
+        if (allowedGroups != null) {
+            metrics.resourceCacheHit();
+            return allowedGroups;
+        }
+
+        metrics.resourceCacheMiss();
+
+        allowedGroups = resolveInBatch(authorization, resource, groupProvider, realm, policy, metrics);
+        if (allowedGroups == null) {
+            long version = resourceGroups.version(policy.getPolicyId(), realm.getId());
+            long start = metrics.start();
+            try (Stream<GroupModel> groups = matchResourceGroups(resource, groupProvider, realm, policy, metrics)) {
+                allowedGroups = toAllowedGroups(realm, groupProvider, groups);
+            }
+            metrics.record(EvaluationPhase.GROUP_LOOKUP, start);
+            resourceGroups.put(policy, resource.getId(), realm.getId(), copyOf(fingerprint), allowedGroups,
+                    version);
+        }
+
+        return allowedGroups;
+    }
+
+    /**
+     * Answers from the bulk resolution of the policy for the current request.
+     * Once the request has evaluated the policy for enough distinct resources,
+     * it most likely covers a whole resource set, so the allowed groups of
+     * every resource of the resource server are resolved at once, with one
+     * group query per batch instead of one per resource. It is disabled unless
+     * a threshold is configured, as small requests only pay for the extra
+     * resource query.
+     */
+    private AllowedGroups resolveInBatch(AuthorizationProvider authorization, Resource resource,
+            GroupProvider groupProvider, RealmModel realm, CompiledGroupMembershipPolicy policy,
+            PolicyMetrics metrics) {
+        if (bulkThreshold <= 0) {
+            return null;
+        }
+
+        KeycloakSession session = authorization.getKeycloakSession();
+        String key = policy.getResourceBatchAttribute();
+        ResourceBatch batch = session.getAttribute(key, ResourceBatch.class);
+        if (batch == null) {
+            batch = new ResourceBatch();
+            session.setAttribute(key, batch);
+        }
+
+        if (!batch.isResolved()) {
+            if (batch.markSeen(resource.getId()) < bulkThreshold) {
                 return null;
             }
 
-            return matchGroups(matcher.group(1), groupProvider, realm, policy);
+            batch.resolved(resolveResourceServer(authorization, resource.getResourceServer(), groupProvider, realm,
+                    policy, metrics));
         }
+
+        return batch.get(resource.getId());
     }
 
-    private static List<GroupModel> matchResourceGroupsByAttribute(Resource resource, GroupProvider groupProvider,
-            RealmModel realm, GroupMembershipPolicyRepresentation policy) {
-        String attributeName = policy.getGroupMatchAttributeName();
-        if (attributeName == null) {
-            return null;
+    private Map<String, AllowedGroups> resolveResourceServer(AuthorizationProvider authorization,
+            ResourceServer resourceServer, GroupProvider groupProvider, RealmModel realm,
+            CompiledGroupMembershipPolicy policy, PolicyMetrics metrics) {
+        long version = resourceGroups.version(policy.getPolicyId(), realm.getId());
+        List<Resource> resources = authorization.getStoreFactory().getResourceStore()
+                .find(resourceServer, Collections.emptyMap(), 0, bulkMaxResources + 1);
+        if (resources.size() > bulkMaxResources) {
+            return Collections.emptyMap();
         }
 
-        List<String> attribute = resource.getAttribute(attributeName);
-        if (attribute != null) {
-            if (policy.getPattern() == null) {
-                for (String value : attribute) {
-                    List<GroupModel> groups = matchGroups(value, groupProvider, realm, policy);
-                    if (groups != null) {
-                        return groups;
-                    }
-                }
-            } else {
-                Pattern pattern = Pattern.compile(policy.getPattern());
+        Map<Resource, List<String>> resourceIdentifiers = new LinkedHashMap<>();
+        Set<String> identifiers = new HashSet<>();
 
-                for (String value : attribute) {
-                    Matcher matcher = pattern.matcher(value);
-                    if (!matcher.matches()) {
-                        continue;
-                    }
+        for (Resource resource : resources) {
+            List<String> extracted = extractIdentifiers(resource, policy, metrics).collect(Collectors.toList());
+            resourceIdentifiers.put(resource, extracted);
+            identifiers.addAll(extracted);
+        }
+
+        Map<String, List<GroupModel>> groups = lookupGroupsInBulk(identifiers, groupProvider, realm, policy, metrics);
+        Map<String, AllowedGroups> resolved = new HashMap<>();
+
+        for (Map.Entry<Resource, List<String>> entry : resourceIdentifiers.entrySet()) {
+            Stream<GroupModel> matched = entry.getValue().stream()
+                    .flatMap(identifier -> groups.getOrDefault(identifier, Collections.emptyList()).stream());
+
+            Resource resource = entry.getKey();
+            AllowedGroups allowedGroups = toAllowedGroups(realm, groupProvider, matched);
+            resolved.put(resource.getId(), allowedGroups);
+            resourceGroups.put(policy, resource.getId(), realm.getId(), copyOf(resourceFingerprint(resource, policy)),
+                    allowedGroups, version);
+        }
 
-                    List<GroupModel> groups = matchGroups(matcher.group(1), groupProvider, realm, policy);
-                    if (groups != null) {
-                        return groups;
+        return resolved;
+    }
+
+    /**
+     * Resolves many group identifiers at once. Ids are fetched with a single
+     * query and names with a single pass over the realm groups, paths and
+     * attributes are answered by the realm group indexes.
+     */
+    private Map<String, List<GroupModel>> lookupGroupsInBulk(Set<String> identifiers, GroupProvider groupProvider,
+            RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics) {
+        GroupResolutionEvent event = new GroupResolutionEvent();
+        event.begin();
+        long start = metrics.start();
+        Map<String, List<GroupModel>> groups = new HashMap<>();
+
+        if (!identifiers.isEmpty()) {
+            switch (policy.getGroupMatchTarget()) {
+                case ID:
+                    groupProvider.getGroupsStream(realm, identifiers.stream())
+                            .forEach(group -> groups.put(group.getId(), Collections.singletonList(group)));
+                    break;
+                case NAME:
+                    groups.putAll(lookupGroupsByName(identifiers, groupProvider, realm));
+                    break;
+                case PATH:
+                case ATTRIBUTE:
+                    Set<String> names = new HashSet<>();
+                    for (String identifier : identifiers) {
+                        if (policy.getGroupMatchTarget() == GroupMatchTarget.PATH && identifier.indexOf('/') == -1) {
+                            names.add(identifier);
+                            continue;
+                        }
+
+                        List<GroupModel> matched = matchGroups(identifier, groupProvider, realm, policy)
+                                .collect(Collectors.toList());
+                        if (!matched.isEmpty()) {
+                            groups.put(identifier, matched);
+                        }
                     }
-                }
+                    groups.putAll(lookupGroupsByName(names, groupProvider, realm));
+                    break;
             }
         }
 
-        return null;
+        metrics.record(EvaluationPhase.GROUP_LOOKUP, start);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.policyId = policy.getPolicyId();
+            event.groupMatchTarget = String.valueOf(policy.getGroupMatchTarget());
+            event.identifiers = identifiers.size();
+            event.candidates = groups.values().stream().mapToInt(List::size).sum();
+            event.bulk = true;
+            event.commit();
+        }
+
+        return groups;
     }
 
-    private static List<GroupModel> matchResourceGroupsByUris(Resource resource, GroupProvider groupProvider,
-            RealmModel realm, GroupMembershipPolicyRepresentation policy) {
-        if (policy.getPattern() == null) {
-            for (String uri : resource.getUris()) {
-                List<GroupModel> groups = matchGroups(uri, groupProvider, realm, policy);
-                if (groups != null) {
-                    return groups;
+    private Map<String, List<GroupModel>> lookupGroupsByName(Set<String> names, GroupProvider groupProvider,
+            RealmModel realm) {
+        if (names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        if (groupIndexes.isBuilt(realm.getId())) {
+            Map<String, List<GroupModel>> groups = new HashMap<>();
+            for (String name : names) {
+                List<GroupModel> named = groupIndexes.findByName(realm, groupProvider, name);
+                if (!named.isEmpty()) {
+                    groups.put(name, named);
                 }
             }
-        } else {
-            Pattern pattern = Pattern.compile(policy.getPattern());
 
-            for (String uri : resource.getUris()) {
-                Matcher matcher = pattern.matcher(uri);
-                if (!matcher.matches()) {
-                    continue;
-                }
+            return groups;
+        }
 
-                List<GroupModel> groups = matchGroups(matcher.group(1), groupProvider, realm, policy);
-                if (groups != null) {
-                    return groups;
-                }
-            }
+        return groupProvider.getGroupsStream(realm)
+                .filter(group -> names.contains(group.getName()))
+                .collect(Collectors.groupingBy(GroupModel::getName));
+    }
+
+    /**
+     * Detaches the matched groups from the session, dropping the groups that
+     * several identifiers of the resource resolve to.
+     */
+    private AllowedGroups toAllowedGroups(RealmModel realm, GroupProvider groupProvider,
+            Stream<GroupModel> groups) {
+        Map<String, AllowedGroup> allowedGroups = new LinkedHashMap<>();
+
+        groups.forEach(group -> allowedGroups.computeIfAbsent(group.getId(),
+                id -> new AllowedGroup(id, group.getName(), groupIndexes.getPath(realm, group))));
+
+        if (allowedGroups.isEmpty()) {
+            return AllowedGroups.NONE;
         }
 
-        return null;
+        return AllowedGroups.of(new ArrayList<>(allowedGroups.values()), groupIndexes.get(realm, groupProvider));
     }
 
-    private static List<GroupModel> matchGroups(String input, GroupProvider groupProvider,
-            RealmModel realm, GroupMembershipPolicyRepresentation policy) {
-        if (input == null) {
-            return null;
+    /**
+     * Returns the resource values the allowed groups are derived from under the
+     * given policy.
+     */
+    private static Object resourceFingerprint(Resource resource, CompiledGroupMembershipPolicy policy) {
+        switch (policy.getResourceMatchTarget()) {
+            case NAME:
+                return resource.getName();
+            case URI:
+                return resource.getUris();
+            case ATTRIBUTE:
+                String attributeName = policy.getMatcher().getResourceAttributeName();
+                return attributeName == null ? null : resource.getAttribute(attributeName);
+            default:
+                return null;
         }
+    }
 
-        switch (policy.getGroupMatchTarget()) {
-            case ID: {
-                GroupModel group = groupProvider.getGroupById(realm, input);
-                if (group == null) {
-                    return null;
-                }
+    private static Object copyOf(Object fingerprint) {
+        if (fingerprint instanceof Set) {
+            return new HashSet<>((Set<?>) fingerprint);
+        } else if (fingerprint instanceof List) {
+            return new ArrayList<>((List<?>) fingerprint);
+        }
 
-                return Collections.singletonList(group);
-            }
-            case NAME: {
-                List<GroupModel> groups = groupProvider.searchForGroupByNameStream(realm, input, true, -1, -1)
-                        .collect(Collectors.toList());
-                if (groups.size() == 0) {
-                    return null;
-                }
+        return fingerprint;
+    }
 
-                return groups;
-            }
-            case PATH: {
-                List<GroupModel> groups;
-
-                if (input.indexOf('/') != -1) {
-                    groups = groupProvider.getGroupsStream(realm)
-                            .filter(g -> {
-                                String allowedGroupPath = buildGroupPath(g);
-                                return input.equals(allowedGroupPath) || input.startsWith(allowedGroupPath);
-                            })
-                            .collect(Collectors.toList());
-                } else {
-                    groups = groupProvider.searchForGroupByNameStream(realm, input, true, -1, -1)
-                            .collect(Collectors.toList());
-                }
+    /**
+     * Lazily looks up the groups referenced by every identifier of the
+     * resource, in the order the identifiers are tried.
+     */
+    private Stream<GroupModel> matchResourceGroups(Resource resource, GroupProvider groupProvider,
+            RealmModel realm, CompiledGroupMembershipPolicy policy, PolicyMetrics metrics) {
+        return extractIdentifiers(resource, policy, metrics)
+                .flatMap(identifier -> matchGroups(identifier, groupProvider, realm, policy));
+    }
 
-                if (groups.size() == 0) {
-                    return null;
+    /**
+     * Returns the group identifiers a resource refers to, in the order they
+     * are tried: the resource name, URIs or attribute values, reduced to the
+     * identifier extracted by the policy pattern when there is one.
+     */
+    private static Stream<String> extractIdentifiers(Resource resource, CompiledGroupMembershipPolicy policy,
+            PolicyMetrics metrics) {
+        switch (policy.getResourceMatchTarget()) {
+            case NAME:
+                return extractIdentifiers(Stream.of(resource.getName()), policy, metrics);
+            case URI:
+                return extractIdentifiers(resource.getUris().stream(), policy, metrics);
+            case ATTRIBUTE:
+                String attributeName = policy.getMatcher().getResourceAttributeName();
+                if (attributeName == null) {
+                    return Stream.empty();
                 }
 
-                return groups;
-            }
-            case ATTRIBUTE: {
-                String attributeName = policy.getGroupMatchAttributeName();
-                if (attributeName == null) {
-                    return null;
+                List<String> attribute = resource.getAttribute(attributeName);
+                if (attribute == null) {
+                    return Stream.empty();
                 }
 
-                List<GroupModel> groups = groupProvider.getGroupsStream(realm).filter(group -> {
-                    return input.equals(group.getFirstAttribute(attributeName));
-                }).collect(Collectors.toList());
-                if (groups.size() == 0) {
-                    return null;
+                return extractIdentifiers(attribute.stream(), policy, metrics);
+            default:
+                return Stream.empty();
+        }
+    }
+
+    private static Stream<String> extractIdentifiers(Stream<String> values, CompiledGroupMembershipPolicy policy,
+            PolicyMetrics metrics) {
+        GroupMembershipMatcher matcher = policy.getMatcher();
+        values = values.filter(Objects::nonNull);
+
+        if (matcher.hasPattern()) {
+            values = values.map(value -> {
+                ResourceMatchEvent event = new ResourceMatchEvent();
+                event.begin();
+                long start = metrics.start();
+                String identifier = matcher.extractIdentifier(value);
+                metrics.record(EvaluationPhase.PATTERN, start);
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.policyId = policy.getPolicyId();
+                    event.resourceMatchTarget = String.valueOf(policy.getResourceMatchTarget());
+                    event.matched = identifier != null;
+                    event.commit();
                 }
 
-                return groups;
-            }
+                return identifier;
+            }).filter(Objects::nonNull);
         }
 
-        return null;
+        return values.distinct();
     }
 
-    private static boolean isChildGroupOrSelf(String parentGroup, String childGroup) {
-        if (childGroup.startsWith(parentGroup)) {
-            int length = childGroup.length();
-            return length == parentGroup.length() || childGroup.charAt(length - 1) == '/';
+    private Stream<GroupModel> matchGroups(String input, GroupProvider groupProvider,
+            RealmModel realm, CompiledGroupMembershipPolicy policy) {
+        GroupResolutionEvent event = new GroupResolutionEvent();
+        event.begin();
+        List<GroupModel> groups = findGroups(input, groupProvider, realm, policy);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.policyId = policy.getPolicyId();
+            event.groupMatchTarget = String.valueOf(policy.getGroupMatchTarget());
+            event.identifiers = 1;
+            event.candidates = groups.size();
+            event.commit();
         }
 
-        return false;
+        return groups.stream();
+    }
+
+    private List<GroupModel> findGroups(String input, GroupProvider groupProvider,
+            RealmModel realm, CompiledGroupMembershipPolicy policy) {
+        return policy.getMatcher().resolveGroups(input, new IndexedGroupLookup(realm, groupProvider));
+    }
+
+    /**
+     * Looks groups up through the realm group indexes, falling back to the
+     * group provider for ids.
+     */
+    private final class IndexedGroupLookup implements GroupLookup<GroupModel> {
+        private final RealmModel realm;
+        private final GroupProvider groupProvider;
+
+        IndexedGroupLookup(RealmModel realm, GroupProvider groupProvider) {
+            this.realm = realm;
+            this.groupProvider = groupProvider;
+        }
+
+        @Override
+        public GroupModel findById(String id) {
+            return groupProvider.getGroupById(realm, id);
+        }
+
+        @Override
+        public List<GroupModel> findByName(String name) {
+            return groupIndexes.findByName(realm, groupProvider, name);
+        }
+
+        @Override
+        public GroupModel findByPath(String path) {
+            List<GroupModel> groups = findByPathOrAncestors(path);
+            if (groups.isEmpty()) {
+                return null;
+            }
+
+            GroupModel group = groups.get(groups.size() - 1);
+            return path.equals(groupIndexes.getPath(realm, group)) ? group : null;
+        }
+
+        @Override
+        public List<GroupModel> findByPathOrAncestors(String path) {
+            return groupIndexes.findByPathOrAncestors(realm, groupProvider, path);
+        }
+
+        @Override
+        public List<GroupModel> findByAttribute(String attributeName, String value) {
+            return groupIndexes.findByAttribute(realm, groupProvider, attributeName, value);
+        }
+    }
+
+    private static final class IdentityGroups {
+        private final String identityId;
+        private final UserGroups groups;
+
+        IdentityGroups(String identityId, UserGroups groups) {
+            this.identityId = identityId;
+            this.groups = groups;
+        }
     }
-}
\ No newline at end of file
+}
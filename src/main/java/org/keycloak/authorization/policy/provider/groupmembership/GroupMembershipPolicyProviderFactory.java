@@ -1,40 +1,106 @@
 package org.keycloak.authorization.policy.provider.groupmembership;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
 import org.keycloak.Config;
 import org.keycloak.authorization.AuthorizationProvider;
 import org.keycloak.authorization.model.Policy;
 import org.keycloak.authorization.policy.provider.PolicyProvider;
 import org.keycloak.authorization.policy.provider.PolicyProviderFactory;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.provider.ConfiguredProvider;
 import org.keycloak.provider.ProviderConfigProperty;
 import org.keycloak.representations.idm.authorization.GroupMatchTarget;
 import org.keycloak.representations.idm.authorization.GroupMembershipPolicyRepresentation;
 import org.keycloak.representations.idm.authorization.PolicyRepresentation;
 import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+import org.keycloak.util.JsonSerialization;
 
 public class GroupMembershipPolicyProviderFactory
         implements PolicyProviderFactory<GroupMembershipPolicyRepresentation>, ConfiguredProvider {
+    private static final Logger logger = Logger.getLogger(GroupMembershipPolicyProviderFactory.class);
+
     private static final List<ProviderConfigProperty> configProperties = new ArrayList<ProviderConfigProperty>();
 
     private static final String GROUPS_CLAIM = "groupsClaim";
     private static final String PATTERN = "pattern";
+    private static final String PATTERNS = "patterns";
     private static final String RESOURCE_MATCH_TARGET = "resourceMatchTarget";
     private static final String RESOURCE_MATCH_ATTRIBUTE_NAME = "resourceMatchAttributeName";
     private static final String GROUP_MATCH_TARGET = "groupMatchTarget";
     private static final String GROUP_MATCH_ATTRIBUTE_NAME = "groupMatchAttributeName";
-
-    private static final String PROVIDER_ID = "group-membership";
-
-    private GroupMembershipPolicyProvider provider = new GroupMembershipPolicyProvider(this::toRepresentation);
+    private static final String DECISION_CACHE = "decisionCache";
+
+    static final String PROVIDER_ID = "group-membership";
+
+    private static final String POLICY_CACHE_SIZE = "policyCacheSize";
+    private static final int DEFAULT_POLICY_CACHE_SIZE = 1000;
+    private static final String GROUP_INDEX_REFRESH_INTERVAL = "groupIndexRefreshInterval";
+    private static final long DEFAULT_GROUP_INDEX_REFRESH_INTERVAL = 30;
+    private static final String RESOURCE_CACHE_SIZE = "resourceCacheSize";
+    private static final int DEFAULT_RESOURCE_CACHE_SIZE = 10000;
+    private static final String RESOURCE_CACHE_TTL = "resourceCacheTtl";
+    private static final long DEFAULT_RESOURCE_CACHE_TTL = 60;
+    private static final String CLAIM_CACHE_SIZE = "claimCacheSize";
+    private static final int DEFAULT_CLAIM_CACHE_SIZE = 10000;
+    private static final String CLAIM_CACHE_TTL = "claimCacheTtl";
+    private static final long DEFAULT_CLAIM_CACHE_TTL = 300;
+    private static final String DECISION_CACHE_SIZE = "decisionCacheSize";
+    private static final int DEFAULT_DECISION_CACHE_SIZE = 10000;
+    private static final String DECISION_CACHE_TTL = "decisionCacheTtl";
+    private static final long DEFAULT_DECISION_CACHE_TTL = 60;
+    private static final String METRICS_ENABLED = "metricsEnabled";
+    private static final String BULK_EVALUATION_THRESHOLD = "bulkEvaluationThreshold";
+    private static final int DEFAULT_BULK_EVALUATION_THRESHOLD = 0;
+    private static final String BULK_EVALUATION_MAX_RESOURCES = "bulkEvaluationMaxResources";
+    private static final int DEFAULT_BULK_EVALUATION_MAX_RESOURCES = 1000;
+    private static final String WARM_UP_ENABLED = "warmUpEnabled";
+    private static final String WARM_UP_THREADS = "warmUpThreads";
+    private static final int DEFAULT_WARM_UP_THREADS = 2;
+    private static final String CACHE_STATS_MBEAN_NAME = "org.keycloak:type=GroupMembershipPolicyProvider,name=caches";
+    private static final String INVALIDATION_TASK_KEY = "group-membership-policy-invalidation";
+    private static final String METRICS_MBEAN_NAME = "org.keycloak:type=GroupMembershipPolicyProvider,name=metrics";
+    private static final ConcurrentMap<ObjectName, GroupMembershipPolicyProviderFactory> mbeanOwners =
+            new ConcurrentHashMap<>();
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private CompiledPolicyCache policies;
+    private GroupIndexes groupIndexes;
+    private ResourceGroupCache resourceGroups;
+    private ClaimGroupsCache claimGroups;
+    private DecisionCache decisions;
+    private GroupMembershipPolicyMetrics metrics;
+    private GroupMembershipPolicyCacheStats cacheStatistics;
+    private GroupMembershipPolicyWarmUp warmUp;
+    private boolean warmUpEnabled;
+    private int warmUpThreads;
+    private GroupMembershipPolicyProvider provider;
+    private final List<ObjectName> mbeanNames = new ArrayList<>();
 
     static {
         ProviderConfigProperty groupsClaimProperty = new ProviderConfigProperty();
@@ -49,10 +115,20 @@ public class GroupMembershipPolicyProviderFactory
         patternProperty.setName(PATTERN);
         patternProperty.setLabel("Regex Pattern");
         patternProperty.setType(ProviderConfigProperty.STRING_TYPE);
-        patternProperty.setHelpText("Specifies the regex pattern used to match group identifier.");
+        patternProperty.setHelpText(
+                "Specifies the regex pattern used to match group identifier, whose first capturing group is the identifier, or a path template such as /tenants/{group}/** where {group} stands for the group identifier.");
 
         configProperties.add(patternProperty);
 
+        ProviderConfigProperty patternsProperty = new ProviderConfigProperty();
+        patternsProperty.setName(PATTERNS);
+        patternsProperty.setLabel("Additional Patterns");
+        patternsProperty.setType(ProviderConfigProperty.MULTIVALUED_STRING_TYPE);
+        patternsProperty.setHelpText(
+                "Specifies further regex patterns or path templates used to match group identifier. The first pattern that matches applies.");
+
+        configProperties.add(patternsProperty);
+
         ProviderConfigProperty resourceMatchTargetProperty = new ProviderConfigProperty();
         resourceMatchTargetProperty.setName(RESOURCE_MATCH_TARGET);
         resourceMatchTargetProperty.setLabel("Resource field");
@@ -88,6 +164,15 @@ public class GroupMembershipPolicyProviderFactory
         groupMatchAttributeProperty.setHelpText("Group Attribute name used for matching");
 
         configProperties.add(groupMatchAttributeProperty);
+
+        ProviderConfigProperty decisionCacheProperty = new ProviderConfigProperty();
+        decisionCacheProperty.setName(DECISION_CACHE);
+        decisionCacheProperty.setLabel("Cache Decisions");
+        decisionCacheProperty.setType(ProviderConfigProperty.BOOLEAN_TYPE);
+        decisionCacheProperty.setHelpText(
+                "If enabled, decisions are cached per resource and set of user groups, so users with the same groups share them until the policy, the resource or the realm groups change.");
+
+        configProperties.add(decisionCacheProperty);
     }
 
     @Override
@@ -132,11 +217,13 @@ public class GroupMembershipPolicyProviderFactory
         Map<String, String> config = policy.getConfig();
         representation.setGroupsClaim(config.get(GROUPS_CLAIM));
         representation.setPattern(config.get(PATTERN));
+        representation.setPatterns(readPatterns(config.get(PATTERNS)));
         representation
                 .setResourceMatchTarget(ResourceMatchTarget.valueOf(config.get(RESOURCE_MATCH_TARGET).toUpperCase()));
         representation.setResourceMatchAttributeName(config.get(RESOURCE_MATCH_ATTRIBUTE_NAME));
         representation.setGroupMatchTarget(GroupMatchTarget.valueOf(config.get(GROUP_MATCH_TARGET).toUpperCase()));
         representation.setGroupMatchAttributeName(config.get(GROUP_MATCH_ATTRIBUTE_NAME));
+        representation.setDecisionCache(Boolean.parseBoolean(config.get(DECISION_CACHE)));
 
         return representation;
     }
@@ -150,26 +237,41 @@ public class GroupMembershipPolicyProviderFactory
     public void onCreate(Policy policy, GroupMembershipPolicyRepresentation representation,
             AuthorizationProvider authorization) {
         updatePolicy(policy, representation.getGroupsClaim(), representation.getPattern(),
-                representation.getResourceMatchTarget(), representation.getResourceMatchAttributeName(),
-                representation.getGroupMatchTarget(), representation.getGroupMatchAttributeName(), authorization);
+                representation.getPatterns(), representation.getResourceMatchTarget(),
+                representation.getResourceMatchAttributeName(), representation.getGroupMatchTarget(),
+                representation.getGroupMatchAttributeName(), representation.isDecisionCache(), authorization);
+        invalidate(authorization.getKeycloakSession(),
+                GroupMembershipPolicyInvalidationEvent.policyUpdated(policy.getId()));
     }
 
     @Override
     public void onUpdate(Policy policy, GroupMembershipPolicyRepresentation representation,
             AuthorizationProvider authorization) {
         updatePolicy(policy, representation.getGroupsClaim(), representation.getPattern(),
-                representation.getResourceMatchTarget(), representation.getResourceMatchAttributeName(),
-                representation.getGroupMatchTarget(), representation.getGroupMatchAttributeName(), authorization);
+                representation.getPatterns(), representation.getResourceMatchTarget(),
+                representation.getResourceMatchAttributeName(), representation.getGroupMatchTarget(),
+                representation.getGroupMatchAttributeName(), representation.isDecisionCache(), authorization);
+        invalidate(authorization.getKeycloakSession(),
+                GroupMembershipPolicyInvalidationEvent.policyUpdated(policy.getId()));
     }
 
     @Override
     public void onImport(Policy policy, PolicyRepresentation representation, AuthorizationProvider authorization) {
         Map<String, String> config = representation.getConfig();
-        updatePolicy(policy, config.get(GROUPS_CLAIM), config.get(PATTERN),
+        updatePolicy(policy, config.get(GROUPS_CLAIM), config.get(PATTERN), readPatterns(config.get(PATTERNS)),
                 ResourceMatchTarget.valueOf(config.get(RESOURCE_MATCH_TARGET).toUpperCase()),
                 config.get(RESOURCE_MATCH_ATTRIBUTE_NAME),
                 GroupMatchTarget.valueOf(config.get(GROUP_MATCH_TARGET).toUpperCase()),
-                config.get(GROUP_MATCH_ATTRIBUTE_NAME), authorization);
+                config.get(GROUP_MATCH_ATTRIBUTE_NAME), Boolean.parseBoolean(config.get(DECISION_CACHE)),
+                authorization);
+        invalidate(authorization.getKeycloakSession(),
+                GroupMembershipPolicyInvalidationEvent.policyUpdated(policy.getId()));
+    }
+
+    @Override
+    public void onRemove(Policy policy, AuthorizationProvider authorization) {
+        invalidate(authorization.getKeycloakSession(),
+                GroupMembershipPolicyInvalidationEvent.policyRemoved(policy.getId()));
     }
 
     @Override
@@ -187,6 +289,11 @@ public class GroupMembershipPolicyProviderFactory
             config.put(PATTERN, pattern);
         }
 
+        List<String> patterns = groupPolicy.getPatterns();
+        if (patterns != null && !patterns.isEmpty()) {
+            config.put(PATTERNS, writePatterns(patterns));
+        }
+
         config.put(RESOURCE_MATCH_TARGET, groupPolicy.getResourceMatchTarget().name());
 
         if (groupPolicy.getResourceMatchTarget() == ResourceMatchTarget.ATTRIBUTE) {
@@ -199,28 +306,287 @@ public class GroupMembershipPolicyProviderFactory
             config.put(GROUP_MATCH_ATTRIBUTE_NAME, groupPolicy.getGroupMatchAttributeName());
         }
 
+        if (groupPolicy.isDecisionCache()) {
+            config.put(DECISION_CACHE, Boolean.TRUE.toString());
+        }
+
         representation.setConfig(config);
     }
 
     @Override
     public void init(Config.Scope config) {
-
+        policies = new CompiledPolicyCache(this::toRepresentation,
+                config.getInt(POLICY_CACHE_SIZE, DEFAULT_POLICY_CACHE_SIZE));
+        groupIndexes = new GroupIndexes(TimeUnit.SECONDS.toMillis(
+                config.getLong(GROUP_INDEX_REFRESH_INTERVAL, DEFAULT_GROUP_INDEX_REFRESH_INTERVAL)));
+        resourceGroups = new ResourceGroupCache(config.getInt(RESOURCE_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_SIZE),
+                TimeUnit.SECONDS.toMillis(config.getLong(RESOURCE_CACHE_TTL, DEFAULT_RESOURCE_CACHE_TTL)));
+        claimGroups = new ClaimGroupsCache(config.getInt(CLAIM_CACHE_SIZE, DEFAULT_CLAIM_CACHE_SIZE),
+                TimeUnit.SECONDS.toMillis(config.getLong(CLAIM_CACHE_TTL, DEFAULT_CLAIM_CACHE_TTL)));
+        decisions = new DecisionCache(config.getInt(DECISION_CACHE_SIZE, DEFAULT_DECISION_CACHE_SIZE),
+                TimeUnit.SECONDS.toMillis(config.getLong(DECISION_CACHE_TTL, DEFAULT_DECISION_CACHE_TTL)));
+        metrics = new GroupMembershipPolicyMetrics(config.getBoolean(METRICS_ENABLED, true));
+        cacheStatistics = new GroupMembershipPolicyCacheStats(policies, groupIndexes, resourceGroups, claimGroups,
+                decisions);
+        warmUp = new GroupMembershipPolicyWarmUp(policies, groupIndexes);
+        warmUpEnabled = config.getBoolean(WARM_UP_ENABLED, false);
+        warmUpThreads = config.getInt(WARM_UP_THREADS, DEFAULT_WARM_UP_THREADS);
+        provider = new GroupMembershipPolicyProvider(policies, groupIndexes, resourceGroups, claimGroups, decisions,
+                metrics, config.getInt(BULK_EVALUATION_THRESHOLD, DEFAULT_BULK_EVALUATION_THRESHOLD),
+                config.getInt(BULK_EVALUATION_MAX_RESOURCES, DEFAULT_BULK_EVALUATION_MAX_RESOURCES));
     }
 
     @Override
+    @SuppressWarnings("deprecation")
     public void postInit(KeycloakSessionFactory factory) {
         factory.register(event -> {
+            if (event instanceof RealmModel.RealmRemovedEvent) {
+                RealmModel.RealmRemovedEvent removal = (RealmModel.RealmRemovedEvent) event;
+                invalidate(removal.getKeycloakSession(),
+                        GroupMembershipPolicyInvalidationEvent.realmRemoved(removal.getRealm().getId()));
+            } else if (event instanceof GroupModel.GroupPathChangeEvent) {
+                GroupModel.GroupPathChangeEvent pathChange = (GroupModel.GroupPathChangeEvent) event;
+                invalidate(pathChange.getKeycloakSession(), GroupMembershipPolicyInvalidationEvent.groupPathChanged(
+                        pathChange.getRealm().getId(), pathChange.getPreviousPath(), pathChange.getNewPath()));
+            } else if (event instanceof GroupModel.GroupRemovedEvent) {
+                GroupModel.GroupRemovedEvent removal = (GroupModel.GroupRemovedEvent) event;
+                invalidate(removal.getKeycloakSession(), GroupMembershipPolicyInvalidationEvent
+                        .groupRemoved(removal.getRealm().getId(), removal.getGroup().getId()));
+            } else if (event instanceof ClientModel.ClientRemovedEvent) {
+                ClientModel.ClientRemovedEvent removal = (ClientModel.ClientRemovedEvent) event;
+                invalidate(removal.getKeycloakSession(),
+                        GroupMembershipPolicyInvalidationEvent.resourceServerRemoved(removal.getClient().getId()));
+            }
         });
+
+        KeycloakModelUtils.runJobInTransaction(factory,
+                session -> registerClusterListener(session.getProvider(ClusterProvider.class)));
+
+        registerMBean(CACHE_STATS_MBEAN_NAME, cacheStatistics);
+        registerMBean(METRICS_MBEAN_NAME, metrics);
+
+        if (warmUpEnabled) {
+            warmUp.start(factory, warmUpThreads);
+        }
     }
 
     @Override
     public void close() {
+        unregisterMBeans();
+        policies.clear();
+        groupIndexes.clear();
+        resourceGroups.clear();
+        claimGroups.clear();
+        decisions.clear();
+    }
+
+    GroupMembershipPolicyMetrics getMetrics() {
+        return metrics;
+    }
+
+    GroupMembershipPolicyCacheStatsMXBean getCacheStatistics() {
+        return cacheStatistics;
+    }
+
+    GroupMembershipPolicyWarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    GroupIndexes getGroupIndexes() {
+        return groupIndexes;
+    }
+
+    /**
+     * Subscribes to the invalidations published by the other cluster nodes.
+     * Nodes sharing one {@link ClusterProvider}, such as two factories in the
+     * same JVM, invalidate each other through it.
+     */
+    @SuppressWarnings("deprecation")
+    void registerClusterListener(ClusterProvider cluster) {
+        if (cluster == null) {
+            return;
+        }
+
+        cluster.registerListener(INVALIDATION_TASK_KEY, event -> {
+            if (event instanceof GroupMembershipPolicyInvalidationEvent) {
+                apply((GroupMembershipPolicyInvalidationEvent) event, false);
+            }
+        });
+    }
+
+    /**
+     * Drops what the caches hold about a change made in the given session
+     * right away, so the rest of the transaction does not answer from them.
+     * The group indexes are only updated once the transaction commits, which
+     * also drops the caches again, discarding anything that was read from the
+     * database while the change was still uncommitted, and asks the other
+     * cluster nodes to do the same. A rollback discards what the transaction
+     * may have read as well.
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidate(KeycloakSession session, GroupMembershipPolicyInvalidationEvent invalidation) {
+        invalidateCaches(invalidation);
+
+        ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+        session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+            @Override
+            protected void commitImpl() {
+                apply(invalidation, true);
+                if (cluster != null) {
+                    cluster.notify(INVALIDATION_TASK_KEY, invalidation, true, ClusterProvider.DCNotify.ALL_DCS);
+                }
+            }
+
+            @Override
+            protected void rollbackImpl() {
+                discard(invalidation);
+            }
+        });
+    }
+
+    /**
+     * Applies a committed invalidation made on this node or received from
+     * another one. A group path change is replayed on the local index in the
+     * order the changes were committed, while messages from other nodes may
+     * arrive in any order, so there the index of the realm is dropped and
+     * rebuilt on next use instead.
+     */
+    void apply(GroupMembershipPolicyInvalidationEvent invalidation, boolean local) {
+        logger.tracef("Applying %s invalidation %s", local ? "local" : "remote", invalidation);
+
+        switch (invalidation.getType()) {
+            case GROUP_PATH_CHANGED:
+                if (local) {
+                    groupIndexes.onPathChanged(invalidation.getRealmId(), invalidation.getPreviousPath(),
+                            invalidation.getNewPath());
+                } else {
+                    groupIndexes.invalidate(invalidation.getRealmId());
+                }
+                break;
+            case GROUP_REMOVED:
+                groupIndexes.onRemoved(invalidation.getRealmId(), invalidation.getId());
+                break;
+            default:
+                break;
+        }
 
+        invalidateCaches(invalidation);
+        forget(invalidation);
     }
 
-    private void updatePolicy(Policy policy, String groupsClaim, String pattern,
+    /**
+     * Drops the metrics and cache versions of a policy or realm once its
+     * removal is committed. The caches keep versions until then, so that
+     * nothing read during a rolled back removal is served afterwards.
+     */
+    private void forget(GroupMembershipPolicyInvalidationEvent invalidation) {
+        switch (invalidation.getType()) {
+            case POLICY_REMOVED:
+                metrics.remove(invalidation.getId());
+                resourceGroups.removePolicy(invalidation.getId());
+                decisions.removePolicy(invalidation.getId());
+                break;
+            case REALM_REMOVED:
+                metrics.removeRealm(invalidation.getRealmId());
+                resourceGroups.removeRealm(invalidation.getRealmId());
+                decisions.removeRealm(invalidation.getRealmId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Discards what a rolled back transaction may have cached. An index built
+     * during the transaction may hold the uncommitted group tree, so the index
+     * of the realm is dropped after a group change.
+     */
+    private void discard(GroupMembershipPolicyInvalidationEvent invalidation) {
+        logger.tracef("Discarding rolled back invalidation %s", invalidation);
+
+        if (invalidation.getType() == GroupMembershipPolicyInvalidationEvent.Type.GROUP_PATH_CHANGED
+                || invalidation.getType() == GroupMembershipPolicyInvalidationEvent.Type.GROUP_REMOVED) {
+            groupIndexes.invalidate(invalidation.getRealmId());
+        }
+
+        invalidateCaches(invalidation);
+    }
+
+    private void invalidateCaches(GroupMembershipPolicyInvalidationEvent invalidation) {
+        switch (invalidation.getType()) {
+            case POLICY_UPDATED:
+            case POLICY_REMOVED:
+                policies.invalidate(invalidation.getId());
+                resourceGroups.invalidatePolicy(invalidation.getId());
+                decisions.invalidatePolicy(invalidation.getId());
+                break;
+            case RESOURCE_SERVER_REMOVED:
+                policies.invalidateResourceServer(invalidation.getId());
+                break;
+            case REALM_REMOVED:
+                policies.clear();
+                groupIndexes.invalidate(invalidation.getRealmId());
+                resourceGroups.invalidateRealm(invalidation.getRealmId());
+                decisions.invalidateRealm(invalidation.getRealmId());
+                break;
+            case GROUP_PATH_CHANGED:
+            case GROUP_REMOVED:
+                resourceGroups.invalidateRealm(invalidation.getRealmId());
+                decisions.invalidateRealm(invalidation.getRealmId());
+                break;
+        }
+    }
+
+    /**
+     * Registers an MBean under the given name, or under the name qualified
+     * with an instance number while another factory of this deployment holds
+     * it, such as a second node started in the same JVM. A name left behind by
+     * a previous deployment is taken over.
+     */
+    private void registerMBean(String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (mbeanOwners.putIfAbsent(objectName, this) != null) {
+                objectName = new ObjectName(name + ",instance=" + instances.incrementAndGet());
+                mbeanOwners.put(objectName, this);
+            }
+            mbeanNames.add(objectName);
+
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            logger.warnf(e, "Failed to register MBean %s", name);
+        }
+    }
+
+    /**
+     * Unregisters the MBeans this factory registered, leaving those of other
+     * factories in place.
+     */
+    private void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : mbeanNames) {
+            mbeanOwners.remove(objectName, this);
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                logger.debugf(e, "Failed to unregister MBean %s", objectName);
+            }
+        }
+        mbeanNames.clear();
+    }
+
+    private void updatePolicy(Policy policy, String groupsClaim, String pattern, List<String> patterns,
             ResourceMatchTarget resourceMatchTarget, String resourceMatchAttributeName,
-            GroupMatchTarget groupMatchTarget, String groupMatchAttributeName, AuthorizationProvider authorization) {
+            GroupMatchTarget groupMatchTarget, String groupMatchAttributeName, boolean decisionCache,
+            AuthorizationProvider authorization) {
+        validatePatterns(pattern, patterns);
+
         Map<String, String> config = new HashMap<>(policy.getConfig());
 
         if (groupsClaim != null) {
@@ -233,6 +599,12 @@ public class GroupMembershipPolicyProviderFactory
             config.put(PATTERN, pattern);
         }
 
+        if (patterns == null || patterns.isEmpty()) {
+            config.remove(PATTERNS);
+        } else {
+            config.put(PATTERNS, writePatterns(patterns));
+        }
+
         config.put(RESOURCE_MATCH_TARGET, resourceMatchTarget.name());
 
         if (resourceMatchTarget == ResourceMatchTarget.ATTRIBUTE) {
@@ -249,6 +621,50 @@ public class GroupMembershipPolicyProviderFactory
             config.remove(GROUP_MATCH_ATTRIBUTE_NAME);
         }
 
+        if (decisionCache) {
+            config.put(DECISION_CACHE, Boolean.TRUE.toString());
+        } else {
+            config.remove(DECISION_CACHE);
+        }
+
         policy.setConfig(config);
     }
-}
\ No newline at end of file
+
+    /**
+     * Compiles the patterns of a policy being saved, so that a pattern that
+     * could never yield an identifier is rejected instead of stored.
+     */
+    private static void validatePatterns(String pattern, List<String> patterns) {
+        List<String> all = new ArrayList<>();
+        if (pattern != null) {
+            all.add(pattern);
+        }
+        if (patterns != null) {
+            all.addAll(patterns);
+        }
+
+        if (!all.isEmpty()) {
+            GroupIdentifierPattern.compile(all);
+        }
+    }
+
+    private static List<String> readPatterns(String patterns) {
+        if (patterns == null) {
+            return null;
+        }
+
+        try {
+            return Arrays.asList(JsonSerialization.readValue(patterns, String[].class));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize patterns", e);
+        }
+    }
+
+    private static String writePatterns(List<String> patterns) {
+        try {
+            return JsonSerialization.writeValueAsString(patterns);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize patterns", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.services.managers.AppAuthManager;
+import org.keycloak.services.managers.AuthenticationManager;
+import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.permissions.AdminPermissions;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+
+/**
+ * Realm-scoped admin endpoint exposing the evaluation metrics of the group
+ * membership policies of the realm. Requires a bearer token of a user allowed
+ * to view the realm's authorization settings, except for the readiness check
+ * which only reports whether the startup warm-up is done, served under the
+ * master realm only so that the node has a single readiness URL. The cache and
+ * warm-up statistics cover every realm of the node, so they are only part of
+ * the statistics of the master realm.
+ */
+public class GroupMembershipPolicyStatsResource {
+    private final KeycloakSession session;
+    private final GroupMembershipPolicyProviderFactory factory;
+
+    public GroupMembershipPolicyStatsResource(KeycloakSession session,
+            GroupMembershipPolicyProviderFactory factory) {
+        this.session = session;
+        this.factory = factory;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getStatistics() {
+        RealmModel realm = authorize();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+
+        statistics.put("metricsEnabled", factory.getMetrics().isEnabled());
+        statistics.put("policies", factory.getMetrics().getPolicies(realm.getId()));
+
+        if (Config.getAdminRealm().equals(realm.getName())) {
+            statistics.put("caches", factory.getCacheStatistics());
+            statistics.put("warmUp", factory.getWarmUp().getStatus());
+        }
+
+        return statistics;
+    }
+
+    @GET
+    @Path("ready")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReadiness() {
+        if (!Config.getAdminRealm().equals(session.getContext().getRealm().getName())) {
+            throw new NotFoundException();
+        }
+
+        // unauthenticated, so the warm-up details are only part of the statistics
+        boolean ready = factory.getWarmUp().isReady();
+        Status status = ready ? Status.OK : Status.SERVICE_UNAVAILABLE;
+
+        return Response.status(status).entity(Map.of("ready", ready)).build();
+    }
+
+    private RealmModel authorize() {
+        RealmModel realm = session.getContext().getRealm();
+        AuthenticationManager.AuthResult auth = new AppAuthManager.BearerTokenAuthenticator(session).authenticate();
+        if (auth == null) {
+            throw new NotAuthorizedException("Bearer");
+        }
+
+        AdminAuth adminAuth = new AdminAuth(realm, auth.getToken(), auth.getUser(), auth.getClient());
+        AdminPermissions.evaluator(session, realm, adminAuth).realm().requireViewAuthorization();
+
+        return realm;
+    }
+}
@@ -0,0 +1,54 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import org.keycloak.Config;
+import org.keycloak.authorization.policy.provider.PolicyProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.services.resource.RealmResourceProviderFactory;
+
+/**
+ * Registers {@link GroupMembershipPolicyStatsResource} under
+ * {@code /realms/{realm}/group-membership-policy-stats}, with the readiness
+ * check at {@code /realms/master/group-membership-policy-stats/ready}.
+ */
+public class GroupMembershipPolicyStatsResourceProviderFactory implements RealmResourceProviderFactory {
+    private static final String PROVIDER_ID = "group-membership-policy-stats";
+
+    private GroupMembershipPolicyProviderFactory policyProviderFactory;
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public RealmResourceProvider create(KeycloakSession session) {
+        return new RealmResourceProvider() {
+            @Override
+            public Object getResource() {
+                return new GroupMembershipPolicyStatsResource(session, policyProviderFactory);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        policyProviderFactory = (GroupMembershipPolicyProviderFactory) factory
+                .getProviderFactory(PolicyProvider.class, GroupMembershipPolicyProviderFactory.PROVIDER_ID);
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
@@ -0,0 +1,185 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.jboss.logging.Logger;
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.store.PolicyStore;
+import org.keycloak.authorization.store.ResourceServerStore;
+import org.keycloak.authorization.store.StoreFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+
+/**
+ * Compiles the group membership policies of every realm and builds the group
+ * indexes they use ahead of the first evaluation, so a freshly started node
+ * does not serve its first requests from cold caches. Realms are warmed up in
+ * their own transaction on a fixed number of background threads, and the node
+ * is reported ready once all of them are done.
+ */
+final class GroupMembershipPolicyWarmUp {
+    private static final Logger logger = Logger.getLogger(GroupMembershipPolicyWarmUp.class);
+
+    enum State {
+        DISABLED, RUNNING, DONE, FAILED
+    }
+
+    private final CompiledPolicyCache policies;
+    private final GroupIndexes groupIndexes;
+    private final AtomicInteger warmedRealms = new AtomicInteger();
+    private final AtomicInteger compiledPolicies = new AtomicInteger();
+    private volatile State state = State.DISABLED;
+    private volatile int realms;
+    private volatile long startedAt;
+    private volatile long duration;
+
+    GroupMembershipPolicyWarmUp(CompiledPolicyCache policies, GroupIndexes groupIndexes) {
+        this.policies = policies;
+        this.groupIndexes = groupIndexes;
+    }
+
+    /**
+     * Starts warming up on {@code threads} background threads and returns
+     * right away.
+     */
+    void start(KeycloakSessionFactory factory, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), threadFactory());
+        state = State.RUNNING;
+        startedAt = System.currentTimeMillis();
+
+        CompletableFuture.supplyAsync(() -> realmIds(factory), executor)
+                .thenCompose(ids -> {
+                    realms = ids.size();
+                    logger.infof("Warming up group membership policies of %d realms", ids.size());
+                    return CompletableFuture.allOf(ids.stream()
+                            .map(id -> CompletableFuture.runAsync(() -> warmUp(factory, id), executor))
+                            .toArray(CompletableFuture[]::new));
+                })
+                .whenComplete((result, error) -> {
+                    duration = System.currentTimeMillis() - startedAt;
+                    executor.shutdown();
+                    if (error == null) {
+                        state = State.DONE;
+                        logger.infof("Warmed up %d group membership policies of %d realms in %d ms",
+                                compiledPolicies.get(), warmedRealms.get(), duration);
+                    } else {
+                        state = State.FAILED;
+                        logger.warnf(error, "Group membership policy warm-up failed after %d ms", duration);
+                    }
+                });
+    }
+
+    /**
+     * Tells whether the node is ready to serve evaluations, which is the case
+     * unless a warm-up is still running.
+     */
+    boolean isReady() {
+        return state != State.RUNNING;
+    }
+
+    Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+
+        status.put("state", state);
+        status.put("ready", isReady());
+        status.put("realms", realms);
+        status.put("warmedRealms", warmedRealms.get());
+        status.put("compiledPolicies", compiledPolicies.get());
+        if (state == State.RUNNING) {
+            status.put("elapsed", System.currentTimeMillis() - startedAt);
+        } else if (state != State.DISABLED) {
+            status.put("duration", duration);
+        }
+
+        return status;
+    }
+
+    private static List<String> realmIds(KeycloakSessionFactory factory) {
+        List<String> ids = new ArrayList<>();
+        KeycloakModelUtils.runJobInTransaction(factory, session -> session.realms().getRealmsStream()
+                .map(RealmModel::getId)
+                .forEach(ids::add));
+        return ids;
+    }
+
+    private void warmUp(KeycloakSessionFactory factory, String realmId) {
+        try {
+            KeycloakModelUtils.runJobInTransaction(factory, session -> warmUp(session, realmId));
+        } catch (RuntimeException e) {
+            logger.warnf(e, "Failed to warm up group membership policies of realm %s", realmId);
+        }
+
+        int warmed = warmedRealms.incrementAndGet();
+        logger.debugf("Warmed up group membership policies of %d out of %d realms", warmed, realms);
+    }
+
+    private void warmUp(KeycloakSession session, String realmId) {
+        RealmModel realm = session.realms().getRealm(realmId);
+        if (realm == null) {
+            return;
+        }
+
+        session.getContext().setRealm(realm);
+
+        long start = System.currentTimeMillis();
+        AuthorizationProvider authorization = session.getProvider(AuthorizationProvider.class);
+        StoreFactory storeFactory = authorization.getStoreFactory();
+        ResourceServerStore resourceServerStore = storeFactory.getResourceServerStore();
+        PolicyStore policyStore = storeFactory.getPolicyStore();
+        List<Policy> realmPolicies = realm.getClientsStream()
+                .map(resourceServerStore::findByClient)
+                .filter(Objects::nonNull)
+                .flatMap(resourceServer -> policyStore
+                        .findByType(resourceServer, GroupMembershipPolicyProviderFactory.PROVIDER_ID).stream())
+                .collect(Collectors.toList());
+
+        if (realmPolicies.isEmpty()) {
+            return;
+        }
+
+        Set<String> attributeNames = new HashSet<>();
+        int compiled = 0;
+        for (Policy policy : realmPolicies) {
+            try {
+                CompiledGroupMembershipPolicy compiledPolicy = policies.get(policy, authorization);
+                if (compiledPolicy.getGroupMatchTarget() == GroupMatchTarget.ATTRIBUTE) {
+                    attributeNames.add(compiledPolicy.getGroupMatchAttributeName());
+                }
+                compiled++;
+            } catch (RuntimeException e) {
+                logger.warnf(e, "Failed to compile group membership policy %s of realm %s", policy.getName(),
+                        realm.getName());
+            }
+        }
+
+        groupIndexes.warmUp(realm, session.groups(), attributeNames);
+        compiledPolicies.addAndGet(compiled);
+        logger.debugf("Warmed up realm %s with %d group membership policies in %d ms", realm.getName(), compiled,
+                System.currentTimeMillis() - start);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "group-membership-policy-warm-up-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
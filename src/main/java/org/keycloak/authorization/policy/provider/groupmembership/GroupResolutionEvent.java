@@ -0,0 +1,38 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering the resolution of group identifiers against the realm
+ * groups, either of a single identifier or of a whole batch.
+ */
+@Name("org.keycloak.GroupMembershipPolicyGroupResolution")
+@Label("Group Membership Policy Group Resolution")
+@Category({ "Keycloak", "Authorization" })
+@Description("Resolution of group identifiers against the realm groups")
+@Enabled(false)
+@StackTrace(false)
+final class GroupResolutionEvent extends Event {
+    @Label("Policy Id")
+    String policyId;
+
+    @Label("Group Match Target")
+    String groupMatchTarget;
+
+    @Label("Identifiers")
+    int identifiers;
+
+    @Label("Candidates")
+    @Description("Groups the identifiers resolved to")
+    int candidates;
+
+    @Label("Bulk")
+    @Description("Whether the identifiers of every resource of the resource server were resolved at once")
+    boolean bulk;
+}
@@ -0,0 +1,64 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two nanosecond buckets. Recording
+ * costs a couple of striped additions, percentiles are approximated by the
+ * upper bound of the bucket they fall in.
+ */
+final class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1))].increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    PhaseStatistics snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        return new PhaseStatistics(total, total == 0 ? 0 : sum.sum() / total, percentile(counts, total, 0.5),
+                percentile(counts, total, 0.9), percentile(counts, total, 0.99), max.get());
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,34 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering the test of the allowed groups of a resource against the
+ * groups of the identity.
+ */
+@Name("org.keycloak.GroupMembershipPolicyMembershipCheck")
+@Label("Group Membership Policy Membership Check")
+@Category({ "Keycloak", "Authorization" })
+@Description("Test of the allowed groups of a resource against the groups of the identity")
+@Enabled(false)
+@StackTrace(false)
+final class MembershipCheckEvent extends Event {
+    @Label("Policy Id")
+    String policyId;
+
+    @Label("Candidates")
+    @Description("Allowed groups tested, or looked up when resolved lazily")
+    int candidates;
+
+    @Label("User Groups")
+    int userGroups;
+
+    @Label("Granted")
+    boolean granted;
+}
@@ -0,0 +1,193 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Segment based matcher for URI like templates such as
+ * {@code /tenants/{group}/**}. Segments are separated by {@code /} and are
+ * either a literal, {@code *} for exactly one segment, {@code **} for any
+ * number of segments, or contain the {@code {group}} placeholder, optionally
+ * surrounded by literal text, which captures the group identifier.
+ *
+ * <p>
+ * A template has exactly one placeholder and at most one {@code **}. The
+ * segments before the {@code **} are matched from the start of the value and
+ * the ones after it from the end, so matching never backtracks and only
+ * allocates the captured identifier.
+ */
+final class PathTemplate implements GroupIdentifierPattern {
+    static final String PLACEHOLDER = "{group}";
+    private static final String ANY_SEGMENT = "*";
+    private static final String ANY_SEGMENTS = "**";
+
+    private final String template;
+    private final Segment[] head;
+    private final Segment[] tail;
+    private final boolean anySegments;
+
+    private PathTemplate(String template, Segment[] head, Segment[] tail, boolean anySegments) {
+        this.template = template;
+        this.head = head;
+        this.tail = tail;
+        this.anySegments = anySegments;
+    }
+
+    static boolean isTemplate(String pattern) {
+        return pattern.contains(PLACEHOLDER);
+    }
+
+    static PathTemplate compile(String template) {
+        List<Segment> head = new ArrayList<>();
+        List<Segment> tail = new ArrayList<>();
+        boolean anySegments = false;
+        int placeholders = 0;
+        int start = 0;
+
+        while (true) {
+            int end = template.indexOf('/', start);
+            String segment = template.substring(start, end == -1 ? template.length() : end);
+
+            if (ANY_SEGMENTS.equals(segment)) {
+                if (anySegments) {
+                    throw new IllegalArgumentException("Template " + template + " contains more than one **");
+                }
+                anySegments = true;
+            } else {
+                int placeholder = segment.indexOf(PLACEHOLDER);
+                if (placeholder != -1) {
+                    placeholders++;
+                    String suffix = segment.substring(placeholder + PLACEHOLDER.length());
+                    if (suffix.contains(PLACEHOLDER)) {
+                        placeholders++;
+                    }
+                    (anySegments ? tail : head).add(Segment.capture(segment.substring(0, placeholder), suffix));
+                } else if (ANY_SEGMENT.equals(segment)) {
+                    (anySegments ? tail : head).add(Segment.ANY);
+                } else if (segment.contains(ANY_SEGMENT)) {
+                    throw new IllegalArgumentException(
+                            "Template " + template + " contains a wildcard that is not a whole segment");
+                } else {
+                    (anySegments ? tail : head).add(Segment.literal(segment));
+                }
+            }
+
+            if (end == -1) {
+                break;
+            }
+            start = end + 1;
+        }
+
+        if (placeholders != 1) {
+            throw new IllegalArgumentException("Template " + template + " must contain exactly one " + PLACEHOLDER);
+        }
+
+        return new PathTemplate(template, head.toArray(new Segment[0]), tail.toArray(new Segment[0]), anySegments);
+    }
+
+    @Override
+    public String extract(String value) {
+        int length = value.length();
+        int captureStart = -1;
+        int captureEnd = -1;
+
+        // start of the next unmatched segment, length + 1 once every segment is consumed
+        int position = 0;
+        for (Segment segment : head) {
+            if (position > length) {
+                return null;
+            }
+
+            int end = value.indexOf('/', position);
+            if (end == -1) {
+                end = length;
+            }
+
+            if (!segment.matches(value, position, end)) {
+                return null;
+            }
+
+            if (segment.kind == Segment.CAPTURE) {
+                captureStart = position + segment.text.length();
+                captureEnd = end - segment.suffix.length();
+            }
+
+            position = end + 1;
+        }
+
+        if (!anySegments) {
+            return position == length + 1 ? value.substring(captureStart, captureEnd) : null;
+        }
+
+        // end of the next unmatched segment, counting backwards from the end of the value
+        int limit = length;
+        for (int i = tail.length - 1; i >= 0; i--) {
+            if (limit < position) {
+                return null;
+            }
+
+            int start = value.lastIndexOf('/', limit - 1) + 1;
+            if (start < position) {
+                return null;
+            }
+
+            Segment segment = tail[i];
+            if (!segment.matches(value, start, limit)) {
+                return null;
+            }
+
+            if (segment.kind == Segment.CAPTURE) {
+                captureStart = start + segment.text.length();
+                captureEnd = limit - segment.suffix.length();
+            }
+
+            limit = start - 1;
+        }
+
+        return value.substring(captureStart, captureEnd);
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static final class Segment {
+        static final int LITERAL = 0;
+        static final int WILDCARD = 1;
+        static final int CAPTURE = 2;
+        static final Segment ANY = new Segment(WILDCARD, "", "");
+
+        final int kind;
+        final String text;
+        final String suffix;
+
+        private Segment(int kind, String text, String suffix) {
+            this.kind = kind;
+            this.text = text;
+            this.suffix = suffix;
+        }
+
+        static Segment literal(String text) {
+            return new Segment(LITERAL, text, "");
+        }
+
+        static Segment capture(String prefix, String suffix) {
+            return new Segment(CAPTURE, prefix, suffix);
+        }
+
+        boolean matches(String value, int start, int end) {
+            int length = end - start;
+            switch (kind) {
+                case LITERAL:
+                    return length == text.length() && value.regionMatches(start, text, 0, length);
+                case CAPTURE:
+                    return length > text.length() + suffix.length()
+                            && value.regionMatches(start, text, 0, text.length())
+                            && value.regionMatches(end - suffix.length(), suffix, 0, suffix.length());
+                default:
+                    return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Snapshot of the latency of one {@link EvaluationPhase}. Durations are in
+ * nanoseconds; percentiles are upper bounds with power-of-two resolution.
+ */
+public class PhaseStatistics {
+    private final long count;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    public PhaseStatistics(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+            long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+}
@@ -0,0 +1,53 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering a whole group membership policy evaluation. Like the
+ * other events of the provider it is disabled by default, in which case
+ * creating and committing it compiles down to nothing. Enable the events in
+ * a recording with, for example:
+ *
+ * <pre>
+ * jfr configure +org.keycloak.GroupMembershipPolicyEvaluation#enabled=true \
+ *     +org.keycloak.GroupMembershipPolicyResourceMatch#enabled=true \
+ *     +org.keycloak.GroupMembershipPolicyGroupResolution#enabled=true \
+ *     +org.keycloak.GroupMembershipPolicyMembershipCheck#enabled=true --output policies.jfc
+ * java -XX:StartFlightRecording:settings=policies.jfc ...
+ * </pre>
+ */
+@Name("org.keycloak.GroupMembershipPolicyEvaluation")
+@Label("Group Membership Policy Evaluation")
+@Category({ "Keycloak", "Authorization" })
+@Description("Evaluation of a group membership policy for one permission")
+@Enabled(false)
+@StackTrace(false)
+final class PolicyEvaluationEvent extends Event {
+    @Label("Policy Id")
+    String policyId;
+
+    @Label("Realm Id")
+    String realmId;
+
+    @Label("Resource Id")
+    String resourceId;
+
+    @Label("Resource Match Target")
+    String resourceMatchTarget;
+
+    @Label("Group Match Target")
+    String groupMatchTarget;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Decision Cached")
+    @Description("Whether the outcome was served from the decision cache")
+    boolean decisionCached;
+}
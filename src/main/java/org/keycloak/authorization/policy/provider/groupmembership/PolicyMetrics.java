@@ -0,0 +1,113 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluation counters and phase latencies of a single policy. The disabled
+ * instance skips reading the clock, so switching metrics off removes their
+ * cost from the hot path.
+ */
+class PolicyMetrics {
+    static final PolicyMetrics DISABLED = new PolicyMetrics(null, null, null) {
+        @Override
+        long start() {
+            return 0;
+        }
+
+        @Override
+        void record(EvaluationPhase phase, long start) {
+        }
+
+        @Override
+        void granted(int groupsScanned) {
+        }
+
+        @Override
+        void denied(int groupsScanned) {
+        }
+
+        @Override
+        void noMatch() {
+        }
+
+        @Override
+        void resourceCacheHit() {
+        }
+
+        @Override
+        void resourceCacheMiss() {
+        }
+    };
+
+    private final String policyId;
+    private final String policyName;
+    private final String realmId;
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder denials = new LongAdder();
+    private final LongAdder noMatches = new LongAdder();
+    private final LongAdder groupsScanned = new LongAdder();
+    private final LongAdder resourceCacheHits = new LongAdder();
+    private final LongAdder resourceCacheMisses = new LongAdder();
+    private final Map<EvaluationPhase, LatencyHistogram> latencies = new EnumMap<>(EvaluationPhase.class);
+
+    PolicyMetrics(String policyId, String policyName, String realmId) {
+        this.policyId = policyId;
+        this.policyName = policyName;
+        this.realmId = realmId;
+
+        for (EvaluationPhase phase : EvaluationPhase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    String getRealmId() {
+        return realmId;
+    }
+
+    long start() {
+        return System.nanoTime();
+    }
+
+    void record(EvaluationPhase phase, long start) {
+        latencies.get(phase).record(System.nanoTime() - start);
+    }
+
+    void granted(int groupsScanned) {
+        grants.increment();
+        this.groupsScanned.add(groupsScanned);
+    }
+
+    void denied(int groupsScanned) {
+        denials.increment();
+        this.groupsScanned.add(groupsScanned);
+    }
+
+    void noMatch() {
+        noMatches.increment();
+    }
+
+    void resourceCacheHit() {
+        resourceCacheHits.increment();
+    }
+
+    void resourceCacheMiss() {
+        resourceCacheMisses.increment();
+    }
+
+    PolicyStatistics snapshot() {
+        Map<String, PhaseStatistics> phases = new LinkedHashMap<>();
+        for (Map.Entry<EvaluationPhase, LatencyHistogram> entry : latencies.entrySet()) {
+            phases.put(entry.getKey().name(), entry.getValue().snapshot());
+        }
+
+        long grants = this.grants.sum();
+        long denials = this.denials.sum();
+        long noMatches = this.noMatches.sum();
+
+        return new PolicyStatistics(policyId, policyName, realmId, grants + denials + noMatches, grants, denials,
+                noMatches, groupsScanned.sum(), resourceCacheHits.sum(), resourceCacheMisses.sum(), phases);
+    }
+}
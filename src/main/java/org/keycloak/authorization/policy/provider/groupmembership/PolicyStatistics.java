@@ -0,0 +1,84 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the evaluation metrics of a single group membership policy.
+ */
+public class PolicyStatistics {
+    private final String policyId;
+    private final String policyName;
+    private final String realmId;
+    private final long evaluations;
+    private final long grants;
+    private final long denials;
+    private final long noMatches;
+    private final long groupsScanned;
+    private final long resourceCacheHits;
+    private final long resourceCacheMisses;
+    private final Map<String, PhaseStatistics> phases;
+
+    public PolicyStatistics(String policyId, String policyName, String realmId, long evaluations, long grants,
+            long denials, long noMatches, long groupsScanned, long resourceCacheHits, long resourceCacheMisses,
+            Map<String, PhaseStatistics> phases) {
+        this.policyId = policyId;
+        this.policyName = policyName;
+        this.realmId = realmId;
+        this.evaluations = evaluations;
+        this.grants = grants;
+        this.denials = denials;
+        this.noMatches = noMatches;
+        this.groupsScanned = groupsScanned;
+        this.resourceCacheHits = resourceCacheHits;
+        this.resourceCacheMisses = resourceCacheMisses;
+        this.phases = phases;
+    }
+
+    public String getPolicyId() {
+        return policyId;
+    }
+
+    public String getPolicyName() {
+        return policyName;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /** Evaluations that granted access. */
+    public long getGrants() {
+        return grants;
+    }
+
+    /** Evaluations where the resource mapped to groups the identity is not a member of. */
+    public long getDenials() {
+        return denials;
+    }
+
+    /** Evaluations where the resource did not map to any group. */
+    public long getNoMatches() {
+        return noMatches;
+    }
+
+    /** Allowed groups tested against the groups of the identity. */
+    public long getGroupsScanned() {
+        return groupsScanned;
+    }
+
+    public long getResourceCacheHits() {
+        return resourceCacheHits;
+    }
+
+    public long getResourceCacheMisses() {
+        return resourceCacheMisses;
+    }
+
+    public Map<String, PhaseStatistics> getPhases() {
+        return phases;
+    }
+}
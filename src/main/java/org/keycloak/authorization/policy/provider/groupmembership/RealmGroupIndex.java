@@ -0,0 +1,312 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+
+/**
+ * In-memory view of the group tree of a single realm. Group paths are resolved
+ * by hashing, so looking up a path and all its ancestors costs one lookup per
+ * path segment instead of a scan over every group of the realm.
+ *
+ * <p>
+ * Every group is also given a dense ordinal, with the ordinal of its parent
+ * kept in a plain array, so the ancestor closure of a set of groups is a walk
+ * up that array and can be held in a {@link CompactBitmap}. Ordinals are
+ * stable for the lifetime of the index and never reused, path changes and
+ * removals only update the affected groups. A rebuilt index starts a new
+ * {@link #getGeneration() generation} whose ordinals are unrelated to the
+ * previous one.
+ *
+ * <p>
+ * Group names are indexed as well, so resolving a group by its name does not
+ * need a query either.
+ */
+final class RealmGroupIndex {
+    private static final char SEPARATOR = '/';
+    private static final int NO_PARENT = -1;
+    private static final AtomicInteger generations = new AtomicInteger();
+
+    private final Map<String, String> pathToId = new ConcurrentHashMap<>();
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> nameToIds = new ConcurrentHashMap<>();
+    private final int generation = generations.incrementAndGet();
+    private final long createdAt;
+    private volatile int[] parents = new int[16];
+    private volatile int version;
+    private int ordinals;
+
+    private RealmGroupIndex(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    static RealmGroupIndex build(GroupProvider groupProvider, RealmModel realm) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, String> parents = new HashMap<>();
+
+        groupProvider.getGroupsStream(realm).forEach(group -> {
+            names.put(group.getId(), group.getName());
+            parents.put(group.getId(), group.getParentId());
+        });
+
+        RealmGroupIndex index = new RealmGroupIndex(System.currentTimeMillis());
+        for (String id : names.keySet()) {
+            index.computeNode(id, names, parents);
+        }
+        index.parents = Arrays.copyOf(index.parents, index.ordinals);
+
+        return index;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Identifies this index among all the indexes built so far. Ordinals are
+     * only comparable within one generation.
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Incremented whenever the group tree of this index changes.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    String getPath(String groupId) {
+        Node node = nodes.get(groupId);
+        return node == null ? null : node.path;
+    }
+
+    /**
+     * Returns the ordinal of the group, or {@code -1} if it is not indexed.
+     */
+    int getOrdinal(String groupId) {
+        Node node = nodes.get(groupId);
+        return node == null ? -1 : node.ordinal;
+    }
+
+    /**
+     * Returns the ids of the groups named {@code name}.
+     */
+    Set<String> findByName(String name) {
+        Set<String> ids = nameToIds.get(name);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Returns the ids of the group at {@code path} and of every ancestor group
+     * whose path is a segment prefix of it, from the top-level group down.
+     */
+    List<String> findByPathOrAncestors(String path) {
+        List<String> ids = null;
+
+        for (int i = path.indexOf(SEPARATOR, 1); i != -1; i = path.indexOf(SEPARATOR, i + 1)) {
+            ids = add(ids, pathToId.get(path.substring(0, i)));
+        }
+
+        ids = add(ids, pathToId.get(path));
+
+        return ids == null ? Collections.emptyList() : ids;
+    }
+
+    /**
+     * Returns the ordinals of the groups at the given paths and of all their
+     * ancestors. A path that is not indexed contributes its closest indexed
+     * ancestor.
+     */
+    CompactBitmap closureOf(Collection<String> paths) {
+        int[] parents = this.parents;
+        int[] closure = new int[paths.size() * 4];
+        int size = 0;
+
+        for (String path : paths) {
+            for (int ordinal = findClosest(path); ordinal != NO_PARENT; ordinal = parents[ordinal]) {
+                if (size == closure.length) {
+                    closure = Arrays.copyOf(closure, size * 2);
+                }
+                closure[size++] = ordinal;
+            }
+        }
+
+        return CompactBitmap.of(closure, size);
+    }
+
+    synchronized void onPathChanged(String previousPath, String newPath) {
+        String previousPrefix = previousPath + SEPARATOR;
+
+        for (Map.Entry<String, Node> entry : new ArrayList<>(nodes.entrySet())) {
+            Node node = entry.getValue();
+            String updated;
+            String name = node.name;
+
+            if (node.path.equals(previousPath)) {
+                updated = newPath;
+                name = newPath.substring(newPath.lastIndexOf(SEPARATOR) + 1);
+                removeName(node.name, entry.getKey());
+                addName(name, entry.getKey());
+            } else if (node.path.startsWith(previousPrefix)) {
+                updated = newPath + node.path.substring(previousPath.length());
+            } else {
+                continue;
+            }
+
+            pathToId.remove(node.path, entry.getKey());
+            pathToId.put(updated, entry.getKey());
+            nodes.put(entry.getKey(), new Node(updated, name, node.ordinal));
+        }
+
+        String id = pathToId.get(newPath);
+        if (id != null) {
+            int separator = newPath.lastIndexOf(SEPARATOR);
+            int[] parents = this.parents;
+            parents[nodes.get(id).ordinal] = separator > 0 ? findClosest(newPath.substring(0, separator)) : NO_PARENT;
+            this.parents = parents;
+        }
+
+        version++;
+    }
+
+    synchronized void onRemoved(String groupId) {
+        Node removed = nodes.remove(groupId);
+        if (removed == null) {
+            return;
+        }
+
+        pathToId.remove(removed.path, groupId);
+        removeName(removed.name, groupId);
+
+        String prefix = removed.path + SEPARATOR;
+        nodes.entrySet().removeIf(entry -> {
+            if (entry.getValue().path.startsWith(prefix)) {
+                pathToId.remove(entry.getValue().path, entry.getKey());
+                removeName(entry.getValue().name, entry.getKey());
+                return true;
+            }
+            return false;
+        });
+
+        version++;
+    }
+
+    synchronized void remove(String groupId) {
+        Node node = nodes.remove(groupId);
+        if (node != null) {
+            pathToId.remove(node.path, groupId);
+            removeName(node.name, groupId);
+            version++;
+        }
+    }
+
+    private void addName(String name, String groupId) {
+        nameToIds.computeIfAbsent(name, n -> ConcurrentHashMap.newKeySet()).add(groupId);
+    }
+
+    private void removeName(String name, String groupId) {
+        nameToIds.computeIfPresent(name, (n, ids) -> {
+            ids.remove(groupId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int findClosest(String path) {
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+
+        String id = pathToId.get(end == path.length() ? path : path.substring(0, end));
+        for (int i = path.lastIndexOf(SEPARATOR, end - 1); id == null && i > 0;
+                i = path.lastIndexOf(SEPARATOR, i - 1)) {
+            id = pathToId.get(path.substring(0, i));
+        }
+
+        Node node = id == null ? null : nodes.get(id);
+        return node == null ? NO_PARENT : node.ordinal;
+    }
+
+    private Node computeNode(String id, Map<String, String> names, Map<String, String> parents) {
+        Node node = nodes.get(id);
+        if (node != null) {
+            return node;
+        }
+
+        String name = names.get(id);
+        if (name == null) {
+            return null;
+        }
+
+        String parentId = parents.get(id);
+        String path;
+        int parentOrdinal;
+        if (parentId == null) {
+            path = SEPARATOR + name;
+            parentOrdinal = NO_PARENT;
+        } else {
+            Node parent = computeNode(parentId, names, parents);
+            if (parent == null) {
+                return null;
+            }
+
+            path = parent.path + SEPARATOR + name;
+            parentOrdinal = parent.ordinal;
+        }
+
+        int ordinal = ordinals++;
+        if (ordinal == this.parents.length) {
+            this.parents = Arrays.copyOf(this.parents, ordinal * 2);
+        }
+        this.parents[ordinal] = parentOrdinal;
+
+        node = new Node(path, name, ordinal);
+        nodes.put(id, node);
+        pathToId.put(path, id);
+        addName(name, id);
+
+        return node;
+    }
+
+    private static List<String> add(List<String> ids, String id) {
+        if (id == null) {
+            return ids;
+        }
+
+        if (ids == null) {
+            ids = new ArrayList<>(4);
+        }
+
+        ids.add(id);
+
+        return ids;
+    }
+
+    private static final class Node {
+        final String path;
+        final String name;
+        final int ordinal;
+
+        Node(String path, String name, int ordinal) {
+            this.path = path;
+            this.name = name;
+            this.ordinal = ordinal;
+        }
+    }
+}
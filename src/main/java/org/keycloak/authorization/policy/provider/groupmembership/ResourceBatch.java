@@ -0,0 +1,33 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Session-scoped state of the bulk resolution of one policy. It tracks the
+ * resources evaluated in the current request until enough of them have been
+ * seen to resolve the whole resource server in a single pass.
+ */
+final class ResourceBatch {
+    private final Set<String> seenResources = new HashSet<>();
+    private Map<String, AllowedGroups> resolved;
+
+    int markSeen(String resourceId) {
+        seenResources.add(resourceId);
+        return seenResources.size();
+    }
+
+    boolean isResolved() {
+        return resolved != null;
+    }
+
+    void resolved(Map<String, AllowedGroups> resolved) {
+        this.resolved = resolved;
+        seenResources.clear();
+    }
+
+    AllowedGroups get(String resourceId) {
+        return resolved == null ? null : resolved.get(resourceId);
+    }
+}
@@ -0,0 +1,73 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Caches the groups a resource grants access to under a given policy. Empty
+ * results are cached as well, so resources that do not match the policy
+ * pattern are rejected without touching the group store.
+ *
+ * <p>
+ * Entries are validated as described in {@link VersionedResourceCache}.
+ */
+final class ResourceGroupCache {
+    private final VersionedResourceCache<AllowedGroups> entries;
+    private final boolean enabled;
+
+    ResourceGroupCache(int maxSize, long ttlMillis) {
+        this.entries = new VersionedResourceCache<>(maxSize, ttlMillis);
+        this.enabled = maxSize > 0;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    AllowedGroups get(CompiledGroupMembershipPolicy policy, String resourceId, Object fingerprint) {
+        return entries.get(policy, resourceId, 0, null, fingerprint);
+    }
+
+    /**
+     * Returns the current invalidation version of the entries of a policy in a
+     * realm, to be read before resolving the groups that are then
+     * {@link #put put}.
+     */
+    long version(String policyId, String realmId) {
+        return entries.version(policyId, realmId);
+    }
+
+    void put(CompiledGroupMembershipPolicy policy, String resourceId, String realmId, Object fingerprint,
+            AllowedGroups groups, long version) {
+        entries.put(policy, resourceId, realmId, 0, null, fingerprint, groups, version);
+    }
+
+    void invalidatePolicy(String policyId) {
+        entries.invalidatePolicy(policyId);
+    }
+
+    void invalidateRealm(String realmId) {
+        entries.invalidateRealm(realmId);
+    }
+
+    void removePolicy(String policyId) {
+        entries.removePolicy(policyId);
+    }
+
+    void removeRealm(String realmId) {
+        entries.removeRealm(realmId);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    long getHits() {
+        return entries.getHits();
+    }
+
+    long getMisses() {
+        return entries.getMisses();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
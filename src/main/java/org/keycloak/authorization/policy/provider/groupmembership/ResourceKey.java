@@ -0,0 +1,38 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+/**
+ * Key of the per policy and resource caches. Unlike a concatenated string it
+ * does not copy the ids, and a short-lived instance used for a lookup is
+ * usually not allocated at all.
+ */
+final class ResourceKey {
+    private final String policyId;
+    private final String resourceId;
+    private final long discriminator;
+
+    ResourceKey(String policyId, String resourceId, long discriminator) {
+        this.policyId = policyId;
+        this.resourceId = resourceId;
+        this.discriminator = discriminator;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof ResourceKey)) {
+            return false;
+        }
+
+        ResourceKey other = (ResourceKey) o;
+        return discriminator == other.discriminator && policyId.equals(other.policyId)
+                && resourceId.equals(other.resourceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * policyId.hashCode() + resourceId.hashCode()) + Long.hashCode(discriminator);
+    }
+}
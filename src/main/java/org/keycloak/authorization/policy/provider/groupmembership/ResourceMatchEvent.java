@@ -0,0 +1,30 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering the extraction of a group identifier from one resource
+ * value with the policy pattern.
+ */
+@Name("org.keycloak.GroupMembershipPolicyResourceMatch")
+@Label("Group Membership Policy Resource Match")
+@Category({ "Keycloak", "Authorization" })
+@Description("Extraction of a group identifier from a resource value with the policy pattern")
+@Enabled(false)
+@StackTrace(false)
+final class ResourceMatchEvent extends Event {
+    @Label("Policy Id")
+    String policyId;
+
+    @Label("Resource Match Target")
+    String resourceMatchTarget;
+
+    @Label("Matched")
+    boolean matched;
+}
@@ -0,0 +1,210 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.keycloak.authorization.attribute.Attributes;
+
+/**
+ * Normalized form of the groups a user belongs to. Group paths are turned
+ * into the ancestor closure of the user's groups in the realm's
+ * {@link RealmGroupIndex}, so testing whether the user is a member of a group
+ * or one of its subgroups is a bitmap lookup, and testing a whole set of
+ * allowed groups a bitmap intersection. Groups the index does not know about
+ * are tested against the set of every path the user's paths are equal to or
+ * a descendant of, computed on first use, or against their
+ * {@link GroupAncestry} when only a single group is tested.
+ *
+ * <p>
+ * Instances are immutable apart from these lazily computed structures, which
+ * are published safely, so they can be shared between requests presenting
+ * the same token.
+ */
+final class UserGroups {
+    private static final char SEPARATOR = '/';
+
+    private final Set<String> names;
+    private final List<String> paths;
+    private volatile ClaimedGroups coveredPaths;
+    private volatile Closure closure;
+    private volatile List<String> sortedGroups;
+    private volatile long fingerprint;
+    private volatile boolean fingerprinted;
+
+    private UserGroups(Set<String> names, List<String> paths) {
+        this.names = names;
+        this.paths = paths;
+    }
+
+    static UserGroups from(Attributes.Entry claim) {
+        int size = claim.size();
+        Set<String> names = new HashSet<>();
+        List<String> paths = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            String group = claim.asString(i);
+            if (group == null || group.isEmpty()) {
+                continue;
+            }
+
+            if (group.indexOf(SEPARATOR) == -1) {
+                names.add(group);
+            } else {
+                paths.add(group);
+            }
+        }
+
+        return new UserGroups(names, paths);
+    }
+
+    boolean isEmpty() {
+        return names.isEmpty() && paths.isEmpty();
+    }
+
+    int size() {
+        return names.size() + paths.size();
+    }
+
+    /**
+     * Returns the distinct group names followed by the distinct group paths,
+     * each sorted. Two users have the same groups if and only if these lists
+     * are equal, whatever order their groups were listed in.
+     */
+    List<String> getSortedGroups() {
+        List<String> sorted = sortedGroups;
+        if (sorted == null) {
+            sorted = new ArrayList<>(names.size() + paths.size());
+            sorted.addAll(new TreeSet<>(names));
+            sorted.addAll(new TreeSet<>(paths));
+            sorted = Collections.unmodifiableList(sorted);
+            sortedGroups = sorted;
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the {@link #getSortedGroups() sorted
+     * groups}.
+     */
+    long getFingerprint() {
+        if (!fingerprinted) {
+            long hash = 0xcbf29ce484222325L;
+            for (String group : getSortedGroups()) {
+                hash = hash(hash, group, group.indexOf(SEPARATOR) == -1 ? '\n' : '\r');
+            }
+            fingerprint = hash;
+            fingerprinted = true;
+        }
+
+        return fingerprint;
+    }
+
+    private static long hash(long hash, String value, char terminator) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+
+        return (hash ^ terminator) * 0x100000001b3L;
+    }
+
+    /**
+     * Returns whether the user is a member of any of the allowed groups,
+     * either directly or through one of its subgroups.
+     */
+    boolean isMemberOfAny(AllowedGroups allowedGroups, RealmGroupIndex index) {
+        if (!names.isEmpty()) {
+            for (AllowedGroup allowedGroup : allowedGroups.getGroups()) {
+                if (names.contains(allowedGroup.getName())) {
+                    return true;
+                }
+            }
+        }
+
+        if (paths.isEmpty()) {
+            return false;
+        }
+
+        CompactBitmap ordinals = allowedGroups.getOrdinals(index);
+        if (ordinals != null) {
+            return closure(index).intersects(ordinals);
+        }
+
+        for (AllowedGroup allowedGroup : allowedGroups.getGroups()) {
+            if (coveredPaths().coversPath(allowedGroup.getPath())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether the user is a member of the group with the given name
+     * and ordinal in {@code index}, either directly or through one of its
+     * subgroups.
+     */
+    boolean isMemberOf(String groupName, int ordinal, RealmGroupIndex index) {
+        if (names.contains(groupName)) {
+            return true;
+        }
+
+        return !paths.isEmpty() && closure(index).contains(ordinal);
+    }
+
+    /**
+     * Returns whether the user is a member of a group the index does not
+     * know, either directly or through one of its subgroups. The paths of the
+     * user are compared against the ancestry of the group in place.
+     */
+    boolean isMemberOf(String groupName, GroupAncestry ancestry) {
+        if (names.contains(groupName)) {
+            return true;
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            if (ancestry.isAncestorOrSelfOf(paths.get(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private CompactBitmap closure(RealmGroupIndex index) {
+        Closure current = closure;
+        if (current == null || current.index != index || current.version != index.getVersion()) {
+            int version = index.getVersion();
+            current = new Closure(index, version, index.closureOf(paths));
+            closure = current;
+        }
+
+        return current.ordinals;
+    }
+
+    private ClaimedGroups coveredPaths() {
+        ClaimedGroups covered = coveredPaths;
+        if (covered == null) {
+            covered = ClaimedGroups.ofPaths(paths);
+            coveredPaths = covered;
+        }
+
+        return covered;
+    }
+
+    private static final class Closure {
+        private final RealmGroupIndex index;
+        private final int version;
+        private final CompactBitmap ordinals;
+
+        Closure(RealmGroupIndex index, int version, CompactBitmap ordinals) {
+            this.index = index;
+            this.version = version;
+            this.ordinals = ordinals;
+        }
+    }
+}
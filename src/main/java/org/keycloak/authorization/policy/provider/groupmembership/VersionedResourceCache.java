@@ -0,0 +1,160 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Values cached per policy and resource, optionally further keyed by a
+ * discriminator such as the groups of the identity. The hash of the
+ * discriminator only selects the entry; the discriminator itself is kept in
+ * the entry and compared on every hit.
+ *
+ * <p>
+ * Each entry remembers the policy configuration and the resource values it
+ * was computed from and is discarded as soon as either changes. Entries also
+ * expire after a fixed time, as Keycloak does not publish events for group
+ * creation, moves or attribute changes.
+ *
+ * <p>
+ * Entries are stamped with the invalidation version of their policy and
+ * realm, taken before the value was computed. An entry computed while an
+ * invalidation was in flight, locally or from another cluster node, is never
+ * stored, and is never served should it be stored concurrently. Versions are
+ * only kept for the policies and realms invalidated at least once, and are
+ * dropped with the policy or realm.
+ *
+ * @param <V> the cached value type
+ */
+final class VersionedResourceCache<V> {
+    private final BoundedCache<ResourceKey, Entry<V>> entries;
+    private final long ttlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    VersionedResourceCache(int maxSize, long ttlMillis) {
+        this.entries = new BoundedCache<>(maxSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached value, or {@code null} if no valid value is cached
+     * for the discriminator and resource fingerprint.
+     */
+    V get(CompiledGroupMembershipPolicy policy, String resourceId, long discriminatorHash, Object discriminator,
+            Object fingerprint) {
+        Entry<V> entry = entries.get(new ResourceKey(policy.getPolicyId(), resourceId, discriminatorHash));
+
+        if (entry != null && entry.configVersion == policy.getConfigVersion()
+                && entry.version == version(entry.policyId, entry.realmId)
+                && Objects.equals(entry.fingerprint, fingerprint)
+                && Objects.equals(entry.discriminator, discriminator)
+                && System.currentTimeMillis() - entry.createdAt <= ttlMillis) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+
+        return null;
+    }
+
+    /**
+     * Returns the current invalidation version of the entries of a policy in a
+     * realm, to be read before computing the value that is then
+     * {@link #put put}.
+     */
+    long version(String policyId, String realmId) {
+        return version(policyId) + version(realmId);
+    }
+
+    void put(CompiledGroupMembershipPolicy policy, String resourceId, String realmId, long discriminatorHash,
+            Object discriminator, Object fingerprint, V value, long version) {
+        if (version(policy.getPolicyId(), realmId) != version) {
+            return;
+        }
+
+        entries.put(new ResourceKey(policy.getPolicyId(), resourceId, discriminatorHash),
+                new Entry<>(policy.getPolicyId(), realmId, policy.getConfigVersion(), version, discriminator,
+                        fingerprint, value));
+    }
+
+    void invalidatePolicy(String policyId) {
+        counter(policyId).incrementAndGet();
+        entries.removeIf(entry -> entry.policyId.equals(policyId));
+    }
+
+    void invalidateRealm(String realmId) {
+        counter(realmId).incrementAndGet();
+        entries.removeIf(entry -> entry.realmId.equals(realmId));
+    }
+
+    /**
+     * Drops the entries and the invalidation version of a removed policy. A
+     * value computed before the removal may still be stored, but is never
+     * looked up again and goes with the least recently used entries.
+     */
+    void removePolicy(String policyId) {
+        versions.remove(policyId);
+        entries.removeIf(entry -> entry.policyId.equals(policyId));
+    }
+
+    /**
+     * Drops the entries and the invalidation version of a removed realm, as
+     * {@link #removePolicy} does for a policy.
+     */
+    void removeRealm(String realmId) {
+        versions.remove(realmId);
+        entries.removeIf(entry -> entry.realmId.equals(realmId));
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private long version(String id) {
+        AtomicLong counter = versions.get(id);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private AtomicLong counter(String id) {
+        return versions.computeIfAbsent(id, key -> new AtomicLong());
+    }
+
+    private static final class Entry<V> {
+        private final String policyId;
+        private final String realmId;
+        private final int configVersion;
+        private final long version;
+        private final Object discriminator;
+        private final Object fingerprint;
+        private final V value;
+        private final long createdAt = System.currentTimeMillis();
+
+        Entry(String policyId, String realmId, int configVersion, long version, Object discriminator,
+                Object fingerprint, V value) {
+            this.policyId = policyId;
+            this.realmId = realmId;
+            this.configVersion = configVersion;
+            this.version = version;
+            this.discriminator = discriminator;
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+}
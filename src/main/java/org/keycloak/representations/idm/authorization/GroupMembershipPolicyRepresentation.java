@@ -1,12 +1,16 @@
 package org.keycloak.representations.idm.authorization;
 
+import java.util.List;
+
 public class GroupMembershipPolicyRepresentation extends AbstractPolicyRepresentation {
     private String groupsClaim;
     private String pattern;
+    private List<String> patterns;
     private ResourceMatchTarget resourceMatchTarget;
     private GroupMatchTarget groupMatchTarget;
     private String resourceMatchAttributeName;
     private String groupMatchAttributeName;
+    private boolean decisionCache;
 
     @Override
     public String getType() {
@@ -29,6 +33,14 @@ public class GroupMembershipPolicyRepresentation extends AbstractPolicyRepresent
         this.pattern = pattern;
     }
 
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public void setPatterns(List<String> patterns) {
+        this.patterns = patterns;
+    }
+
     public ResourceMatchTarget getResourceMatchTarget() {
         return resourceMatchTarget;
     }
@@ -60,4 +72,12 @@ public class GroupMembershipPolicyRepresentation extends AbstractPolicyRepresent
     public void setGroupMatchAttributeName(String name) {
         this.groupMatchAttributeName = name;
     }
+
+    public boolean isDecisionCache() {
+        return decisionCache;
+    }
+
+    public void setDecisionCache(boolean decisionCache) {
+        this.decisionCache = decisionCache;
+    }
 }
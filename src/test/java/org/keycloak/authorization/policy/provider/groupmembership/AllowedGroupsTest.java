@@ -0,0 +1,63 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.authorization.attribute.Attributes;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+
+class AllowedGroupsTest {
+    private final RealmModel realm = TestModels.realm("realm");
+    private final GroupModel a = TestModels.group("a", "a", null);
+    private final GroupModel b = TestModels.group("b", "b", a);
+    private final GroupModel c = TestModels.group("c", "c", b);
+    private final GroupModel d = TestModels.group("d", "d", null);
+    private final GroupProvider groups = TestModels.groupProvider(List.of(a, b, c, d));
+
+    private final AllowedGroup allowedB = new AllowedGroup("b", "b", "/a/b");
+    private final AllowedGroup allowedD = new AllowedGroup("d", "d", "/d");
+
+    @Test
+    void usesOrdinalsOfTheSameGeneration() {
+        RealmGroupIndex index = RealmGroupIndex.build(groups, realm);
+        AllowedGroups allowed = AllowedGroups.of(List.of(allowedB), index);
+
+        assertNotNull(allowed.getOrdinals(index));
+        assertTrue(user("/a/b/c").isMemberOfAny(allowed, index));
+        assertFalse(user("/d").isMemberOfAny(allowed, index));
+    }
+
+    @Test
+    void fallsBackToPathsForAnotherGeneration() {
+        AllowedGroups allowed = AllowedGroups.of(List.of(allowedB), RealmGroupIndex.build(groups, realm));
+        RealmGroupIndex rebuilt = RealmGroupIndex.build(groups, realm);
+
+        assertNull(allowed.getOrdinals(rebuilt));
+        assertTrue(user("/a/b/c").isMemberOfAny(allowed, rebuilt));
+        assertTrue(user("/a/b").isMemberOfAny(allowed, rebuilt));
+        assertFalse(user("/a").isMemberOfAny(allowed, rebuilt));
+        assertFalse(user("/d").isMemberOfAny(allowed, rebuilt));
+    }
+
+    @Test
+    void fallsBackToPathsForGroupsMissingFromTheIndex() {
+        RealmGroupIndex index = RealmGroupIndex.build(TestModels.groupProvider(List.of(a, b, c)), realm);
+        AllowedGroups allowed = AllowedGroups.of(List.of(allowedB, allowedD), index);
+
+        assertNull(allowed.getOrdinals(index));
+        assertTrue(user("/d").isMemberOfAny(allowed, index));
+        assertTrue(user("/a/b/c").isMemberOfAny(allowed, index));
+        assertFalse(user("/a").isMemberOfAny(allowed, index));
+    }
+
+    private static UserGroups user(String... groups) {
+        return UserGroups.from(new Attributes.Entry("groups", List.of(groups)));
+    }
+}
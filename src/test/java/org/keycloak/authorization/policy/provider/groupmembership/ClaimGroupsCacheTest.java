@@ -0,0 +1,95 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.authorization.attribute.Attributes;
+
+class ClaimGroupsCacheTest {
+    private static final long TTL = 60_000;
+
+    private final UserGroups groups = UserGroups.from(new Attributes.Entry("groups", List.of("/a")));
+
+    @Test
+    void servesEntriesOnlyForTheirIdentityAndClaim() {
+        ClaimGroupsCache cache = new ClaimGroupsCache(10, TTL);
+        cache.put("token", "user", "groups", groups, 0);
+
+        assertSame(groups, cache.get("token", "user", "groups"));
+        assertNull(cache.get("token", "other", "groups"));
+        assertNull(cache.get("token", "user", "roles"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void keepsEveryClaimOfAToken() {
+        ClaimGroupsCache cache = new ClaimGroupsCache(10, TTL);
+        UserGroups roles = UserGroups.from(new Attributes.Entry("roles", List.of("/r")));
+        cache.put("token", "user", "groups", groups, 0);
+        cache.put("token", "user", "roles", roles, 0);
+
+        assertSame(groups, cache.get("token", "user", "groups"));
+        assertSame(roles, cache.get("token", "user", "roles"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void dropsExpiredClaimsOfATokenOnly() {
+        ClaimGroupsCache cache = new ClaimGroupsCache(10, TTL);
+        cache.put("token", "user", "groups", groups, 0);
+        cache.put("token", "user", "roles", groups, System.currentTimeMillis() + 1);
+
+        sleep(5);
+        assertNull(cache.get("token", "user", "roles"));
+        assertSame(groups, cache.get("token", "user", "groups"));
+    }
+
+    @Test
+    void dropsExpiredTokens() {
+        ClaimGroupsCache cache = new ClaimGroupsCache(10, TTL);
+        cache.put("expired", "user", "groups", groups, System.currentTimeMillis() - 1);
+        cache.put("expiring", "user", "groups", groups, System.currentTimeMillis() + 1);
+
+        assertNull(cache.get("expired", "user", "groups"));
+        sleep(5);
+        assertNull(cache.get("expiring", "user", "groups"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyReadEntries() {
+        ClaimGroupsCache cache = new ClaimGroupsCache(10, TTL);
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, "user", "groups", groups, 0);
+        }
+
+        sleep(5);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(cache.get("token-" + i, "user", "groups"));
+        }
+
+        sleep(5);
+        cache.put("token-10", "user", "groups", groups, 0);
+
+        assertEquals(9, cache.size());
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(cache.get("token-" + i, "user", "groups"), "token-" + i);
+        }
+        assertNotNull(cache.get("token-10", "user", "groups"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CombinedGroupIdentifierPatternTest {
+    @Test
+    void firstConfiguredPatternWins() {
+        assertEquals("x", extract("a:x", "a:(.+)", "(.+)"));
+        assertEquals("a:x", extract("a:x", "(.+)", "a:(.+)"));
+    }
+
+    @Test
+    void keepsOrderBetweenTemplatesAndRegularExpressions() {
+        assertEquals("acme", extract("/tenants/acme/x", "/tenants/{group}/**", "/tenants/(.+)"));
+        assertEquals("acme/x", extract("/tenants/acme/x", "/tenants/(.+)", "/tenants/{group}/**"));
+    }
+
+    @Test
+    void renumbersCapturingGroups() {
+        GroupIdentifierPattern pattern = compile("(x|y):(.+)", "z:(.+)", "(w)");
+
+        assertEquals("y", pattern.extract("y:q"));
+        assertEquals("q", pattern.extract("z:q"));
+        assertEquals("w", pattern.extract("w"));
+        assertNull(pattern.extract("v:q"));
+    }
+
+    @Test
+    void scopesInlineFlagsToTheirPattern() {
+        GroupIdentifierPattern pattern = compile("(?i)team:(.+)", "group:(.+)");
+
+        assertEquals("a", pattern.extract("TEAM:a"));
+        assertEquals("a", pattern.extract("group:a"));
+        assertNull(pattern.extract("GROUP:a"));
+    }
+
+    @Test
+    void triesPatternsWithNamedGroupsOneByOne() {
+        GroupIdentifierPattern pattern = compile("team:(?<id>.+)", "group:(?<id>.+)", "other:(.+)");
+
+        assertEquals("a", pattern.extract("team:a"));
+        assertEquals("b", pattern.extract("group:b"));
+        assertEquals("c", pattern.extract("other:c"));
+    }
+
+    @Test
+    void combinesLookbehinds() {
+        GroupIdentifierPattern pattern = compile("(.+)(?<=x)", "(.+)(?<!y):z");
+
+        assertEquals("ax", pattern.extract("ax"));
+        assertEquals("a", pattern.extract("a:z"));
+        assertNull(pattern.extract("y:z"));
+    }
+
+    @Test
+    void triesPatternsWithBackReferencesOneByOne() {
+        GroupIdentifierPattern pattern = compile("(.+)-(\\1)", "b-(.+)");
+
+        assertEquals("a", pattern.extract("a-a"));
+        assertEquals("c", pattern.extract("b-c"));
+        assertNull(pattern.extract("a-c"));
+    }
+
+    @Test
+    void rejectsPatternsWithoutCapturingGroup() {
+        assertThrows(IllegalArgumentException.class, () -> compile("foo-.*", "bar-(.*)"));
+        assertThrows(IllegalArgumentException.class, () -> compile("bar-(.*)", "foo-(?:.*)"));
+        assertThrows(IllegalArgumentException.class, () -> GroupIdentifierPattern.compile("foo-.*"));
+    }
+
+    private static String extract(String value, String... patterns) {
+        return compile(patterns).extract(value);
+    }
+
+    private static GroupIdentifierPattern compile(String... patterns) {
+        return CombinedGroupIdentifierPattern.compile(List.of(patterns));
+    }
+}
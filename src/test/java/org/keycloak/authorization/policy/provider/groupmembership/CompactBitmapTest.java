@@ -0,0 +1,73 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class CompactBitmapTest {
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+
+    @Test
+    void keepsValuesAcrossTheContainerSwitch() {
+        for (int size : new int[] { ARRAY_CONTAINER_MAX - 1, ARRAY_CONTAINER_MAX, ARRAY_CONTAINER_MAX + 1 }) {
+            // every other value, so the values missing in between are tested too
+            CompactBitmap bitmap = bitmap(IntStream.range(0, size).map(i -> i * 2).toArray());
+
+            assertEquals(size, bitmap.cardinality());
+            for (int i = 0; i < size; i++) {
+                assertTrue(bitmap.contains(i * 2), "contains " + i * 2);
+                assertFalse(bitmap.contains(i * 2 + 1), "contains " + (i * 2 + 1));
+            }
+            assertFalse(bitmap.contains(size * 2));
+        }
+    }
+
+    @Test
+    void ignoresOrderAndDuplicates() {
+        CompactBitmap bitmap = CompactBitmap.of(new int[] { 7, 3, 7, 70000, 3, 99 }, 5);
+
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(99));
+        assertTrue(CompactBitmap.of(new int[0], 0).isEmpty());
+    }
+
+    @Test
+    void intersectsAcrossChunks() {
+        CompactBitmap low = bitmap(5, 65535);
+        CompactBitmap high = bitmap(65536 + 5, 65536 + 65535);
+
+        // same lower 16 bits in different chunks
+        assertFalse(low.intersects(high));
+        assertFalse(high.intersects(low));
+
+        assertTrue(bitmap(1, 3 << 16, 5 << 16).intersects(bitmap(2 << 16, 5 << 16)));
+        assertFalse(bitmap(1, 3 << 16).intersects(bitmap(2 << 16, 4 << 16)));
+        assertFalse(CompactBitmap.EMPTY.intersects(low));
+    }
+
+    @Test
+    void intersectsArrayAndBitmapContainers() {
+        int[] dense = IntStream.range(0, ARRAY_CONTAINER_MAX + 1).map(i -> i * 2).toArray();
+        CompactBitmap bitmapContainer = bitmap(dense);
+
+        assertTrue(bitmapContainer.intersects(bitmap(1, 3, ARRAY_CONTAINER_MAX * 2)));
+        assertTrue(bitmap(1, 3, ARRAY_CONTAINER_MAX * 2).intersects(bitmapContainer));
+        assertFalse(bitmapContainer.intersects(bitmap(1, 3, ARRAY_CONTAINER_MAX * 2 + 2)));
+
+        CompactBitmap odd = bitmap(IntStream.range(0, ARRAY_CONTAINER_MAX + 1).map(i -> i * 2 + 1).toArray());
+        assertFalse(bitmapContainer.intersects(odd));
+        assertTrue(bitmapContainer.intersects(bitmap(IntStream.concat(IntStream.of(dense[100]),
+                IntStream.range(0, ARRAY_CONTAINER_MAX + 1).map(i -> i * 2 + 1)).toArray())));
+    }
+
+    private static CompactBitmap bitmap(int... values) {
+        return CompactBitmap.of(values, values.length);
+    }
+}
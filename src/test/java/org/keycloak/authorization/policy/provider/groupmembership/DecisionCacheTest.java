@@ -0,0 +1,96 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.authorization.attribute.Attributes;
+import org.keycloak.representations.idm.authorization.GroupMatchTarget;
+import org.keycloak.representations.idm.authorization.GroupMembershipPolicyRepresentation;
+import org.keycloak.representations.idm.authorization.ResourceMatchTarget;
+
+class DecisionCacheTest {
+    private static final long TTL = 60_000;
+
+    private final CompiledGroupMembershipPolicy policy = policy();
+
+    @Test
+    void sharesDecisionBetweenUsersListingTheSameGroups() {
+        DecisionCache cache = new DecisionCache(100, TTL);
+        UserGroups first = groups("/a/b", "c", "/d");
+        UserGroups second = groups("c", "/d", "/a/b", "/d");
+
+        cache.put(policy, "resource", "realm", first, "fingerprint", EvaluationOutcome.GRANTED,
+                cache.version(policy.getPolicyId(), "realm"));
+
+        assertEquals(first.getSortedGroups(), second.getSortedGroups());
+        assertEquals(EvaluationOutcome.GRANTED, cache.get(policy, "resource", second, "fingerprint"));
+        assertNull(cache.get(policy, "resource", groups("/a/b", "c"), "fingerprint"));
+        assertNull(cache.get(policy, "resource", first, "changed"));
+    }
+
+    @Test
+    void comparesGroupsWhenFingerprintsCollide() {
+        VersionedResourceCache<EvaluationOutcome> cache = new VersionedResourceCache<>(100, TTL);
+        long fingerprint = 42;
+
+        cache.put(policy, "resource", "realm", fingerprint, List.of("/a"), null, EvaluationOutcome.GRANTED,
+                cache.version(policy.getPolicyId(), "realm"));
+
+        assertNull(cache.get(policy, "resource", fingerprint, List.of("/b"), null));
+        assertEquals(EvaluationOutcome.GRANTED, cache.get(policy, "resource", fingerprint, List.of("/a"), null));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void dropsDecisionsOfInvalidatedRealm() {
+        DecisionCache cache = new DecisionCache(100, TTL);
+        UserGroups groups = groups("/a");
+        long version = cache.version(policy.getPolicyId(), "realm");
+
+        cache.invalidateRealm("realm");
+        cache.put(policy, "resource", "realm", groups, null, EvaluationOutcome.DENIED, version);
+        assertNull(cache.get(policy, "resource", groups, null), "decided before the invalidation");
+
+        cache.put(policy, "resource", "realm", groups, null, EvaluationOutcome.DENIED,
+                cache.version(policy.getPolicyId(), "realm"));
+        cache.invalidateRealm("realm");
+        assertNull(cache.get(policy, "resource", groups, null));
+    }
+
+    @Test
+    void forgetsRemovedPoliciesAndRealms() {
+        DecisionCache cache = new DecisionCache(100, TTL);
+        UserGroups groups = groups("/a");
+        cache.invalidatePolicy(policy.getPolicyId());
+        cache.invalidateRealm("realm");
+        cache.put(policy, "resource", "realm", groups, null, EvaluationOutcome.GRANTED,
+                cache.version(policy.getPolicyId(), "realm"));
+
+        cache.removePolicy(policy.getPolicyId());
+        assertNull(cache.get(policy, "resource", groups, null));
+        assertEquals(1, cache.version(policy.getPolicyId(), "realm"));
+
+        cache.removeRealm("realm");
+        assertEquals(0, cache.version(policy.getPolicyId(), "realm"));
+    }
+
+    private static UserGroups groups(String... groups) {
+        return UserGroups.from(new Attributes.Entry("groups", List.of(groups)));
+    }
+
+    private static CompiledGroupMembershipPolicy policy() {
+        GroupMembershipPolicyRepresentation representation = new GroupMembershipPolicyRepresentation();
+        representation.setGroupsClaim("groups");
+        representation.setResourceMatchTarget(ResourceMatchTarget.NAME);
+        representation.setGroupMatchTarget(GroupMatchTarget.PATH);
+        representation.setDecisionCache(true);
+
+        return new CompiledGroupMembershipPolicy("policy", "resource-server", Map.of("groupsClaim", "groups"),
+                representation);
+    }
+}
@@ -0,0 +1,110 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.RealmModel;
+
+class GroupIndexesTest {
+    private final RealmModel realm = TestModels.realm("realm");
+    private final GroupModel a = TestModels.group("a", "a", null);
+    private final GroupModel b = TestModels.group("b", "b", a);
+    private final GroupModel otherB = TestModels.group("other-b", "b", null);
+    private final GroupModel d = TestModels.group("d", "d", null);
+    private final List<GroupModel> models = new ArrayList<>(List.of(a, b, otherB, d));
+    private final GroupProvider groups = TestModels.groupProvider(models);
+
+    @Test
+    void findsSubgroupsByNameBeforeTheIndexIsBuilt() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+
+        assertEquals(List.of("b", "other-b"), ids(indexes.findByName(realm, groups, "b")));
+        assertTrue(indexes.isBuilt(realm.getId()));
+    }
+
+    @Test
+    void findsGroupAndAncestorsByPath() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+
+        assertEquals(List.of("a", "b"), ids(indexes.findByPathOrAncestors(realm, groups, "/a/b")));
+        assertEquals(List.of("a"), ids(indexes.findByPathOrAncestors(realm, groups, "/a/missing")));
+    }
+
+    @Test
+    void followsGroupsMovedWithoutAnEventToTheirNewPath() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+        indexes.findByPathOrAncestors(realm, groups, "/a/b");
+
+        TestModels.move(b, d);
+
+        assertEquals(List.of("b", "d"), ids(indexes.findByPathOrAncestors(realm, groups, "/d/b")));
+        assertEquals(List.of("a"), ids(indexes.findByPathOrAncestors(realm, groups, "/a/b")));
+        assertEquals("/d/b", indexes.getPath(realm, b));
+    }
+
+    @Test
+    void dropsGroupsMovedWithoutAnEventFromTheirPreviousPath() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+        indexes.findByPathOrAncestors(realm, groups, "/a/b");
+
+        TestModels.move(b, d);
+
+        assertEquals(List.of("a"), ids(indexes.findByPathOrAncestors(realm, groups, "/a/b")));
+        assertEquals(List.of("b", "d"), ids(indexes.findByPathOrAncestors(realm, groups, "/d/b")));
+    }
+
+    @Test
+    void pathOfAGroupMovedWithoutAnEventComesFromTheModel() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+        indexes.findByPathOrAncestors(realm, groups, "/a/b");
+        RealmGroupIndex index = indexes.get(realm, groups);
+
+        TestModels.move(a, d);
+
+        assertEquals("/d/a/b", indexes.getPath(realm, b));
+        assertNotSame(index, indexes.get(realm, groups));
+        assertEquals("/d/a/b", indexes.get(realm, groups).getPath("b"));
+    }
+
+    @Test
+    void findsGroupsCreatedAfterTheIndexWasBuilt() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+        indexes.findByPathOrAncestors(realm, groups, "/a");
+
+        models.add(TestModels.group("e", "e", b));
+
+        assertEquals(List.of("a", "b", "e"), ids(indexes.findByPathOrAncestors(realm, groups, "/a/b/e/x")));
+        assertEquals(-1, indexes.get(realm, groups).getOrdinal("e"));
+    }
+
+    @Test
+    void keepsNoIndexBuiltWhileGroupsKeepChanging() {
+        GroupIndexes indexes = new GroupIndexes(60_000);
+        GroupProvider changing = (GroupProvider) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { GroupProvider.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getGroupsStream")) {
+                        indexes.onPathChanged(realm.getId(), "/x", "/y");
+                    }
+                    return method.invoke(groups, args);
+                });
+
+        assertEquals("/a/b", indexes.get(realm, changing).getPath("b"));
+        assertFalse(indexes.isBuilt(realm.getId()));
+
+        indexes.get(realm, groups);
+        assertTrue(indexes.isBuilt(realm.getId()));
+    }
+
+    private static List<String> ids(List<GroupModel> groups) {
+        return groups.stream().map(GroupModel::getId).sorted().toList();
+    }
+}
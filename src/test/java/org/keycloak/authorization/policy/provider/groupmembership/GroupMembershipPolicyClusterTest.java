@@ -0,0 +1,149 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Two nodes sharing an in-memory cluster: a group change committed on one
+ * node updates its own index and drops the index of the other.
+ */
+@SuppressWarnings("deprecation")
+class GroupMembershipPolicyClusterTest {
+    private static final String MBEAN_NAMES = "org.keycloak:type=GroupMembershipPolicyProvider,*";
+
+    private final RealmModel realm = TestModels.realm("realm");
+    private final GroupModel a = TestModels.group("a", "a", null);
+    private final GroupModel b = TestModels.group("b", "b", a);
+    private final GroupModel c = TestModels.group("c", "c", null);
+    private final GroupProvider groups = TestModels.groupProvider(List.of(a, b, c));
+
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        InMemoryCluster cluster = new InMemoryCluster();
+        nodeA = new Node(cluster.join());
+        nodeB = new Node(cluster.join());
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.factory.close();
+        nodeB.factory.close();
+    }
+
+    @Test
+    void committedGroupMoveUpdatesLocalIndexAndDropsRemoteIndex() {
+        nodeA.buildIndex();
+        nodeB.buildIndex();
+
+        TestTransactionManager transaction = nodeA.moveGroup("/a/b", "/c/b");
+        assertEquals("/a/b", nodeA.path(b), "index changed before commit");
+        assertTrue(nodeB.isIndexBuilt());
+
+        transaction.commit();
+
+        assertEquals("/c/b", nodeA.path(b));
+        assertFalse(nodeB.isIndexBuilt());
+    }
+
+    @Test
+    void rolledBackGroupMoveDropsLocalIndexOnly() {
+        nodeA.buildIndex();
+        nodeB.buildIndex();
+
+        nodeA.moveGroup("/a/b", "/c/b").rollback();
+
+        assertFalse(nodeA.isIndexBuilt());
+        assertTrue(nodeB.isIndexBuilt());
+        assertEquals("/a/b", nodeA.path(b));
+    }
+
+    @Test
+    void nodesRegisterDistinctMBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName names = new ObjectName(MBEAN_NAMES);
+        assertEquals(4, server.queryNames(names, null).size());
+
+        nodeA.factory.close();
+        assertEquals(2, server.queryNames(names, null).size());
+    }
+
+    private final class Node {
+        private final GroupMembershipPolicyProviderFactory factory = new GroupMembershipPolicyProviderFactory();
+        private final ClusterProvider cluster;
+        private final KeycloakSessionFactory sessionFactory;
+
+        Node(ClusterProvider cluster) {
+            this.cluster = cluster;
+            this.sessionFactory = TestModels.sessionFactory(() -> TestModels.session(cluster,
+                    new TestTransactionManager()));
+            factory.init(new MapConfigScope());
+            factory.postInit(sessionFactory);
+        }
+
+        void buildIndex() {
+            factory.getGroupIndexes().get(realm, groups);
+        }
+
+        boolean isIndexBuilt() {
+            return factory.getGroupIndexes().isBuilt(realm.getId());
+        }
+
+        String path(GroupModel group) {
+            return factory.getGroupIndexes().get(realm, groups).getPath(group.getId());
+        }
+
+        /**
+         * Publishes a group move made in a new session and returns its
+         * transaction, still open.
+         */
+        TestTransactionManager moveGroup(String previousPath, String newPath) {
+            TestTransactionManager transaction = new TestTransactionManager();
+            transaction.begin();
+            KeycloakSession session = TestModels.session(cluster, transaction);
+
+            sessionFactory.publish(new GroupModel.GroupPathChangeEvent() {
+                @Override
+                public RealmModel getRealm() {
+                    return realm;
+                }
+
+                @Override
+                public String getNewPath() {
+                    return newPath;
+                }
+
+                @Override
+                public String getPreviousPath() {
+                    return previousPath;
+                }
+
+                @Override
+                public KeycloakSession getKeycloakSession() {
+                    return session;
+                }
+            });
+
+            return transaction;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.Decision.Effect;
+import org.keycloak.authorization.identity.Identity;
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.policy.evaluation.Evaluation;
+import org.keycloak.authorization.policy.evaluation.Realm;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Evaluates policies end to end, each decision checked against the one the
+ * provider made before its caches and indexes were introduced.
+ */
+class GroupMembershipPolicyProviderTest {
+    private final RealmModel realm = TestModels.realm("realm");
+    private final GroupModel a = TestModels.group("a", "a", null);
+    private final GroupModel b = TestModels.group("b", "b", a);
+    private final GroupModel c = TestModels.group("c", "c", b);
+    private final GroupModel d = TestModels.group("d", "d", null);
+    private final GroupProvider groups = TestModels.groupProvider(List.of(a, b, c, d));
+
+    private final GroupMembershipPolicyProviderFactory factory = new GroupMembershipPolicyProviderFactory();
+    private final Map<String, List<String>> userGroups = new HashMap<>();
+    private final AtomicInteger userGroupLookups = new AtomicInteger();
+    private final List<String> claimReads = new ArrayList<>();
+
+    private KeycloakSession session = newSession();
+
+    GroupMembershipPolicyProviderTest() {
+        factory.init(new MapConfigScope());
+    }
+
+    @AfterEach
+    void close() {
+        factory.close();
+    }
+
+    @Test
+    void grantsGroupsClaimingTheResourceGroupOrADescendant() {
+        Policy policy = policy("NAME", "ID", false);
+        Resource resource = resource("b");
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a/b")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a/b/c")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("b")));
+        assertNull(evaluate(policy, resource, claiming("/a/bc")));
+        assertNull(evaluate(policy, resource, claiming("/a")));
+        assertNull(evaluate(policy, resource, claiming("/d")));
+    }
+
+    @Test
+    void grantsGroupsClaimingAnAncestorOfAResourcePath() {
+        Policy policy = policy("NAME", "PATH", false);
+        Resource resource = resource("/a/b/x");
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a/b")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a/b/c")));
+        assertNull(evaluate(policy, resource, claiming("/ab")));
+        assertNull(evaluate(policy, resource, claiming("/d")));
+    }
+
+    @Test
+    void grantsAnyGroupOfAMultiValuedResource() {
+        Policy policy = policy("URI", "ID", false);
+        Resource resource = TestModels.resource("resource", "resource", new LinkedHashSet<>(List.of("d", "b")),
+                Map.of());
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/d")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, claiming("/a/b")));
+        assertNull(evaluate(policy, resource, claiming("/a")));
+    }
+
+    @Test
+    void followsGroupsMovedWithoutAnEvent() {
+        Policy policy = policy("NAME", "ID", false);
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), claiming("/a/b")));
+
+        TestModels.move(b, d);
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), claiming("/d/b")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), claiming("/d/b/c")));
+        assertNull(evaluate(policy, resource("b"), claiming("/a/b")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("c"), claiming("/d/b/c")));
+        assertNull(evaluate(policy, resource("c"), claiming("/a/b/c")));
+    }
+
+    @Test
+    void followsGroupsMovedWithoutAnEventWithoutResourceCache() {
+        factory.init(new MapConfigScope().with("resourceCacheSize", 0));
+        Policy policy = policy("NAME", "ID", false);
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), claiming("/a/b")));
+
+        TestModels.move(b, d);
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), claiming("/d/b")));
+        assertNull(evaluate(policy, resource("b"), claiming("/a/b")));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("c"), claiming("/d/b/c")));
+        assertNull(evaluate(policy, resource("c"), claiming("/a/b/c")));
+    }
+
+    @Test
+    void leavesPermissionsWithoutResourceUndecided() {
+        assertNull(evaluate(policy("NAME", "PATH", false), null, claiming("/a/b")));
+    }
+
+    @Test
+    void sharesCachedDecisionsBetweenUsersWithTheSameGroups() {
+        Policy policy = policy("NAME", "PATH", true);
+        Resource resource = resource("/a/b");
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, identity("alice", Map.of("groups", List.of("/a/b")))));
+        assertEquals(0, factory.getCacheStatistics().getDecisionCacheHits());
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource, identity("bob", Map.of("groups", List.of("/a/b")))));
+        assertEquals(1, factory.getCacheStatistics().getDecisionCacheHits());
+
+        assertNull(evaluate(policy, resource, identity("carol", Map.of("groups", List.of("/d")))));
+        assertEquals(1, factory.getCacheStatistics().getDecisionCacheHits());
+    }
+
+    @Test
+    void readsTheGroupsOfAnIdentityOncePerSession() {
+        Policy policy = policy("NAME", "ID", false);
+        userGroups.put("alice", List.of("/a/b/c"));
+        userGroups.put("bob", List.of("/d"));
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), identity("alice", Map.of())));
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("c"), identity("alice", Map.of())));
+        assertNull(evaluate(policy, resource("d"), identity("alice", Map.of())));
+        assertEquals(1, userGroupLookups.get());
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("d"), identity("bob", Map.of())));
+        assertNull(evaluate(policy, resource("b"), identity("bob", Map.of())));
+        assertEquals(2, userGroupLookups.get());
+
+        session = newSession();
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("b"), identity("alice", Map.of())));
+        assertEquals(3, userGroupLookups.get());
+    }
+
+    @Test
+    void readsTheGroupsClaimOncePerToken() {
+        Policy policy = policy("NAME", "PATH", false);
+        Map<String, List<String>> token = Map.of("jti", List.of("token"), "groups", List.of("/a/b"));
+
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("/a/b"), identity("alice", token)));
+        session = newSession();
+        assertEquals(Effect.PERMIT, evaluate(policy, resource("/a/b/c"), identity("alice", token)));
+        session = newSession();
+        assertNull(evaluate(policy, resource("/d"), identity("alice", token)));
+
+        assertEquals(1, claimReads.stream().filter("groups"::equals).count());
+        assertEquals(0, userGroupLookups.get());
+    }
+
+    private Effect evaluate(Policy policy, Resource resource, Identity identity) {
+        AuthorizationProvider authorization = new AuthorizationProvider(session, realm, null);
+        Realm userRealm = TestModels.userRealm(userGroups, userGroupLookups);
+        Evaluation evaluation = TestModels.evaluation(authorization, policy, resource, identity, userRealm);
+
+        factory.create(session).evaluate(evaluation);
+
+        return evaluation.getEffect();
+    }
+
+    private KeycloakSession newSession() {
+        return TestModels.session(groups, new HashMap<>());
+    }
+
+    private Identity claiming(String... groups) {
+        return identity(String.join(",", groups), Map.of("groups", List.of(groups)));
+    }
+
+    private Identity identity(String id, Map<String, List<String>> claims) {
+        return TestModels.identity(id, claims, claimReads);
+    }
+
+    private static Resource resource(String name) {
+        return TestModels.resource(name, name, Set.of(), Map.of());
+    }
+
+    private static Policy policy(String resourceMatchTarget, String groupMatchTarget, boolean decisionCache) {
+        return TestModels.policy("policy", Map.of("groupsClaim", "groups", "resourceMatchTarget", resourceMatchTarget,
+                "groupMatchTarget", groupMatchTarget, "decisionCache", String.valueOf(decisionCache)));
+    }
+}
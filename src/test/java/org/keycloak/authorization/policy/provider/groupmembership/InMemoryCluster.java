@@ -0,0 +1,72 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+import org.keycloak.cluster.ClusterEvent;
+import org.keycloak.cluster.ClusterListener;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.cluster.ExecutionResult;
+
+/**
+ * Cluster of nodes in one JVM. Events a node notifies are delivered to the
+ * listeners of every node, synchronously, skipping the sender when asked to.
+ */
+@SuppressWarnings("deprecation")
+class InMemoryCluster {
+    private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+    ClusterProvider join() {
+        Node node = new Node();
+        nodes.add(node);
+        return node;
+    }
+
+    private final class Node implements ClusterProvider {
+        private final Map<String, List<ClusterListener>> listeners = new ConcurrentHashMap<>();
+
+        @Override
+        public void registerListener(String taskKey, ClusterListener listener) {
+            listeners.computeIfAbsent(taskKey, key -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+
+        @Override
+        public void notify(String taskKey, ClusterEvent event, boolean ignoreSender, DCNotify dcNotify) {
+            for (Node node : new ArrayList<>(nodes)) {
+                if (ignoreSender && node == this) {
+                    continue;
+                }
+
+                for (ClusterListener listener : node.listeners.getOrDefault(taskKey, List.of())) {
+                    listener.eventReceived(event);
+                }
+            }
+        }
+
+        @Override
+        public int getClusterStartupTime() {
+            return 0;
+        }
+
+        @Override
+        public <T> ExecutionResult<T> executeIfNotExecuted(String taskKey, int taskTimeoutInSeconds,
+                Callable<T> task) {
+            throw new UnsupportedOperationException("executeIfNotExecuted");
+        }
+
+        @Override
+        public Future<Boolean> executeIfNotExecutedAsync(String taskKey, int taskTimeoutInSeconds,
+                @SuppressWarnings("rawtypes") Callable task) {
+            throw new UnsupportedOperationException("executeIfNotExecutedAsync");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
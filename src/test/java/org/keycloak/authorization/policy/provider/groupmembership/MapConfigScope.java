@@ -0,0 +1,87 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.keycloak.Config;
+
+/**
+ * SPI configuration backed by a map, standing in for the server configuration
+ * when initializing the policy provider factory.
+ */
+class MapConfigScope implements Config.Scope {
+    private final Map<String, String> properties;
+
+    MapConfigScope() {
+        this(new HashMap<>());
+    }
+
+    MapConfigScope(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    MapConfigScope with(String name, Object value) {
+        properties.put(name, String.valueOf(value));
+        return this;
+    }
+
+    @Override
+    public String get(String key) {
+        return properties.get(key);
+    }
+
+    @Override
+    public String get(String key, String defaultValue) {
+        return properties.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public String[] getArray(String key) {
+        String value = properties.get(key);
+        return value == null ? null : value.split(",");
+    }
+
+    @Override
+    public Integer getInt(String key) {
+        return getInt(key, null);
+    }
+
+    @Override
+    public Integer getInt(String key, Integer defaultValue) {
+        String value = properties.get(key);
+        return value == null ? defaultValue : Integer.valueOf(value);
+    }
+
+    @Override
+    public Long getLong(String key) {
+        return getLong(key, null);
+    }
+
+    @Override
+    public Long getLong(String key, Long defaultValue) {
+        String value = properties.get(key);
+        return value == null ? defaultValue : Long.valueOf(value);
+    }
+
+    @Override
+    public Boolean getBoolean(String key) {
+        return getBoolean(key, null);
+    }
+
+    @Override
+    public Boolean getBoolean(String key, Boolean defaultValue) {
+        String value = properties.get(key);
+        return value == null ? defaultValue : Boolean.valueOf(value);
+    }
+
+    @Override
+    public Config.Scope scope(String... scope) {
+        return new MapConfigScope();
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+        return properties.keySet();
+    }
+}
@@ -0,0 +1,78 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class PathTemplateTest {
+    @Test
+    void anySegmentsMatchesZeroOrMoreSegments() {
+        PathTemplate template = PathTemplate.compile("/tenants/{group}/**");
+
+        assertEquals("acme", template.extract("/tenants/acme"));
+        assertEquals("acme", template.extract("/tenants/acme/x"));
+        assertEquals("acme", template.extract("/tenants/acme/x/y"));
+        assertNull(template.extract("/tenants"));
+        assertNull(template.extract("/other/acme"));
+    }
+
+    @Test
+    void matchesTailSegmentsFromTheEnd() {
+        PathTemplate template = PathTemplate.compile("/a/**/{group}");
+
+        assertEquals("g", template.extract("/a/g"));
+        assertEquals("g", template.extract("/a/b/c/g"));
+        assertNull(template.extract("/a"));
+        assertNull(template.extract("/b/g"));
+
+        PathTemplate withLiteral = PathTemplate.compile("/a/**/{group}/members");
+        assertEquals("g", withLiteral.extract("/a/b/g/members"));
+        assertNull(withLiteral.extract("/a/members"));
+        assertNull(withLiteral.extract("/a/b/g"));
+    }
+
+    @Test
+    void rejectsEmptyCaptures() {
+        assertNull(PathTemplate.compile("/tenants/{group}/x").extract("/tenants//x"));
+        assertNull(PathTemplate.compile("/tenants/{group}/**").extract("/tenants//x"));
+        assertNull(PathTemplate.compile("/tenants/{group}").extract("/tenants/"));
+    }
+
+    @Test
+    void capturesBetweenPrefixAndSuffix() {
+        PathTemplate template = PathTemplate.compile("/teams/team-{group}.eng/**");
+
+        assertEquals("core", template.extract("/teams/team-core.eng"));
+        assertEquals("core", template.extract("/teams/team-core.eng/x"));
+        assertNull(template.extract("/teams/team-.eng"));
+        assertNull(template.extract("/teams/team-core.ops"));
+        assertNull(template.extract("/teams/core.eng"));
+
+        assertEquals("core", PathTemplate.compile("/**/team-{group}").extract("/x/team-core"));
+        assertEquals("core", PathTemplate.compile("/{group}.eng").extract("/core.eng"));
+    }
+
+    @Test
+    void matchesSingleSegmentWildcards() {
+        PathTemplate template = PathTemplate.compile("/*/{group}");
+
+        assertEquals("acme", template.extract("/tenants/acme"));
+        assertNull(template.extract("/acme"));
+        assertNull(template.extract("/tenants/acme/x"));
+
+        PathTemplate afterAnySegments = PathTemplate.compile("**/*/{group}");
+        assertEquals("acme", afterAnySegments.extract("tenants/acme"));
+        assertNull(afterAnySegments.extract("x"));
+    }
+
+    @Test
+    void rejectsInvalidTemplates() {
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.compile("/**/{group}/**"));
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.compile("/{group}/{group}"));
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.compile("/{group}-{group}"));
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.compile("/tenants/**"));
+        assertThrows(IllegalArgumentException.class, () -> PathTemplate.compile("/t*/{group}"));
+    }
+}
@@ -0,0 +1,94 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RealmModel;
+
+class RealmGroupIndexTest {
+    private final RealmModel realm = TestModels.realm("realm");
+    private final GroupModel a = TestModels.group("a", "a", null);
+    private final GroupModel b = TestModels.group("b", "b", a);
+    private final GroupModel c = TestModels.group("c", "c", b);
+    private final GroupModel d = TestModels.group("d", "d", null);
+    private final RealmGroupIndex index = RealmGroupIndex.build(TestModels.groupProvider(List.of(a, b, c, d)),
+            realm);
+
+    @Test
+    void resolvesPathsAndAncestors() {
+        assertEquals("/a/b/c", index.getPath("c"));
+        assertEquals(List.of("a", "b", "c"), index.findByPathOrAncestors("/a/b/c"));
+        assertEquals(List.of("a", "b"), index.findByPathOrAncestors("/a/b/missing"));
+        assertEquals(List.of(), index.findByPathOrAncestors("/missing"));
+    }
+
+    @Test
+    void closureContainsGroupsAndAncestors() {
+        assertClosure(index.closureOf(List.of("/a/b", "/d")), "a", "b", "d");
+
+        // unknown paths contribute their closest indexed ancestor
+        assertClosure(index.closureOf(List.of("/a/b/missing/deeper")), "a", "b");
+        assertTrue(index.closureOf(List.of("/missing")).isEmpty());
+    }
+
+    @Test
+    void movedGroupKeepsOrdinalAndTakesNewParent() {
+        int ordinal = index.getOrdinal("b");
+        int version = index.getVersion();
+
+        index.onPathChanged("/a/b", "/d/b");
+
+        assertEquals(ordinal, index.getOrdinal("b"));
+        assertNotEquals(version, index.getVersion());
+        assertEquals("/d/b", index.getPath("b"));
+        assertEquals("/d/b/c", index.getPath("c"));
+        assertEquals(List.of("d", "b", "c"), index.findByPathOrAncestors("/d/b/c"));
+        assertEquals(List.of("a"), index.findByPathOrAncestors("/a/b/c"));
+        assertClosure(index.closureOf(List.of("/d/b/c")), "d", "b", "c");
+    }
+
+    @Test
+    void movedGroupTakesItsClosestIndexedAncestorAsParent() {
+        index.onPathChanged("/a/b", "/d/missing/b");
+
+        assertEquals("/d/missing/b/c", index.getPath("c"));
+        assertClosure(index.closureOf(List.of("/d/missing/b/c")), "d", "b", "c");
+    }
+
+    @Test
+    void renamedGroupIsFoundByItsNewName() {
+        index.onPathChanged("/a", "/x");
+
+        assertEquals(Set.of("a"), index.findByName("x"));
+        assertTrue(index.findByName("a").isEmpty());
+        assertEquals("/x/b/c", index.getPath("c"));
+        assertClosure(index.closureOf(List.of("/x/b/c")), "a", "b", "c");
+    }
+
+    @Test
+    void removedGroupTakesItsSubtree() {
+        index.onRemoved("b");
+
+        assertEquals(2, index.size());
+        assertNull(index.getPath("b"));
+        assertNull(index.getPath("c"));
+        assertEquals(-1, index.getOrdinal("c"));
+        assertTrue(index.findByName("c").isEmpty());
+        assertEquals(List.of("a"), index.findByPathOrAncestors("/a/b/c"));
+        assertClosure(index.closureOf(List.of("/a/b/c")), "a");
+    }
+
+    private void assertClosure(CompactBitmap closure, String... ids) {
+        assertEquals(ids.length, closure.cardinality());
+        for (String id : ids) {
+            assertTrue(closure.contains(index.getOrdinal(id)), id);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.Decision.Effect;
+import org.keycloak.authorization.attribute.Attributes;
+import org.keycloak.authorization.identity.Identity;
+import org.keycloak.authorization.model.Policy;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.authorization.permission.ResourcePermission;
+import org.keycloak.authorization.policy.evaluation.Evaluation;
+import org.keycloak.authorization.policy.evaluation.EvaluationContext;
+import org.keycloak.authorization.policy.evaluation.Realm;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+/**
+ * Proxies for the few methods of the Keycloak models the tests go through.
+ * Any other call fails.
+ */
+final class TestModels {
+    private TestModels() {
+    }
+
+    static RealmModel realm(String id) {
+        return proxy(RealmModel.class, (proxy, name, args) -> {
+            switch (name) {
+                case "getId":
+                case "getName":
+                    return id;
+                default:
+                    return unsupported(proxy, name, args);
+            }
+        });
+    }
+
+    static GroupModel group(String id, String name, GroupModel parent) {
+        AtomicReference<GroupModel> currentParent = new AtomicReference<>(parent);
+        List<GroupModel> children = new CopyOnWriteArrayList<>();
+
+        GroupModel group = proxy(GroupModel.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getId":
+                    return id;
+                case "getName":
+                    return name;
+                case "getParentId":
+                    return currentParent.get() == null ? null : currentParent.get().getId();
+                case "getParent":
+                    return currentParent.get();
+                case "setParent":
+                    currentParent.set((GroupModel) args[0]);
+                    return null;
+                case "getSubGroupsStream":
+                    return args.length == 4 ? named(children.stream(), (String) args[0]) : children.stream();
+                case "addChild":
+                    children.add((GroupModel) args[0]);
+                    return null;
+                case "removeChild":
+                    children.remove(args[0]);
+                    return null;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+
+        if (parent != null) {
+            parent.addChild(group);
+        }
+
+        return group;
+    }
+
+    /**
+     * Moves a group under another parent, or to the top level, the way
+     * {@code RealmModel.moveGroup} does: without publishing any event.
+     */
+    static void move(GroupModel group, GroupModel parent) {
+        GroupModel previous = group.getParent();
+        if (previous != null) {
+            previous.removeChild(group);
+        }
+
+        group.setParent(parent);
+        if (parent != null) {
+            parent.addChild(group);
+        }
+    }
+
+    /**
+     * Returns a group provider over the given groups. Groups added to the
+     * collection afterwards are visible, as if they were created.
+     */
+    static GroupProvider groupProvider(Collection<GroupModel> groups) {
+        return proxy(GroupProvider.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getGroupsStream":
+                    return groups.stream();
+                case "getGroupById":
+                    return groups.stream().filter(group -> group.getId().equals(args[1])).findFirst().orElse(null);
+                case "getTopLevelGroupsStream":
+                    Stream<GroupModel> topLevel = groups.stream().filter(group -> group.getParentId() == null);
+                    return args.length == 5 ? named(topLevel, (String) args[1]) : topLevel;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    private static Stream<GroupModel> named(Stream<GroupModel> groups, String name) {
+        return groups.filter(group -> group.getName().equals(name));
+    }
+
+    /**
+     * Returns a session over the given groups that keeps its attributes in
+     * {@code attributes}, standing for a single authorization request.
+     */
+    static KeycloakSession session(GroupProvider groupProvider, Map<String, Object> attributes) {
+        return proxy(KeycloakSession.class, (proxy, method, args) -> {
+            switch (method) {
+                case "groups":
+                    return groupProvider;
+                case "getAttribute":
+                    Object value = attributes.get((String) args[0]);
+                    return args.length == 2 && !((Class<?>) args[1]).isInstance(value) ? null : value;
+                case "setAttribute":
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                case "getProvider":
+                    return null;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    static Policy policy(String id, Map<String, String> config) {
+        ResourceServer resourceServer = resourceServer("resource-server");
+
+        return proxy(Policy.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getId":
+                case "getName":
+                    return id;
+                case "getConfig":
+                    return config;
+                case "getResourceServer":
+                    return resourceServer;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    static Resource resource(String id, String name, Set<String> uris, Map<String, List<String>> attributes) {
+        ResourceServer resourceServer = resourceServer("resource-server");
+
+        return proxy(Resource.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getId":
+                    return id;
+                case "getName":
+                    return name;
+                case "getUris":
+                    return uris;
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "getAttributes":
+                    return attributes;
+                case "getResourceServer":
+                    return resourceServer;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Returns an identity presenting the given claims. The name of every
+     * claim read is added to {@code reads}.
+     */
+    static Identity identity(String id, Map<String, ? extends Collection<String>> claims, List<String> reads) {
+        Attributes attributes = proxy(Attributes.class, (proxy, method, args) -> {
+            switch (method) {
+                case "toMap":
+                    return claims;
+                case "getValue":
+                    reads.add((String) args[0]);
+                    Collection<String> values = claims.get((String) args[0]);
+                    return values == null ? null : new Attributes.Entry((String) args[0], values);
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+
+        return proxy(Identity.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getId":
+                    return id;
+                case "getAttributes":
+                    return attributes;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Returns the realm view of an evaluation, looking the groups of users up
+     * in {@code userGroups} and counting the lookups in {@code lookups}.
+     */
+    static Realm userRealm(Map<String, List<String>> userGroups, AtomicInteger lookups) {
+        return proxy(Realm.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getUserGroups":
+                    lookups.incrementAndGet();
+                    return userGroups.getOrDefault((String) args[0], List.of());
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Returns the evaluation of a single permission on {@code resource}, which
+     * may be {@code null}, recording its effect.
+     */
+    static Evaluation evaluation(AuthorizationProvider authorization, Policy policy, Resource resource,
+            Identity identity, Realm realm) {
+        ResourcePermission permission = new ResourcePermission(resource, List.of(), policy.getResourceServer());
+        EvaluationContext context = proxy(EvaluationContext.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getIdentity":
+                    return identity;
+                case "getAttributes":
+                    return identity.getAttributes();
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+        AtomicReference<Effect> effect = new AtomicReference<>();
+
+        return proxy(Evaluation.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getPermission":
+                    return permission;
+                case "getContext":
+                    return context;
+                case "getPolicy":
+                    return policy;
+                case "getRealm":
+                    return realm;
+                case "getAuthorizationProvider":
+                    return authorization;
+                case "grant":
+                    effect.set(Effect.PERMIT);
+                    return null;
+                case "deny":
+                    effect.set(Effect.DENY);
+                    return null;
+                case "getEffect":
+                    return effect.get();
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    private static ResourceServer resourceServer(String id) {
+        return proxy(ResourceServer.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getId":
+                    return id;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    static KeycloakSession session(ClusterProvider cluster, KeycloakTransactionManager transactionManager) {
+        return proxy(KeycloakSession.class, (proxy, method, args) -> {
+            switch (method) {
+                case "getProvider":
+                    return args.length == 1 && args[0] == ClusterProvider.class ? cluster : null;
+                case "getTransactionManager":
+                    return transactionManager;
+                case "getContext":
+                    return null;
+                case "close":
+                    return null;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Returns a session factory that creates sessions with the given supplier
+     * and delivers published events to its listeners.
+     */
+    static KeycloakSessionFactory sessionFactory(Supplier<KeycloakSession> sessions) {
+        List<ProviderEventListener> listeners = new CopyOnWriteArrayList<>();
+
+        return proxy(KeycloakSessionFactory.class, (proxy, method, args) -> {
+            switch (method) {
+                case "create":
+                    return sessions.get();
+                case "register":
+                    listeners.add((ProviderEventListener) args[0]);
+                    return null;
+                case "unregister":
+                    listeners.remove(args[0]);
+                    return null;
+                case "publish":
+                    for (ProviderEventListener listener : listeners) {
+                        listener.onEvent((ProviderEvent) args[0]);
+                    }
+                    return null;
+                default:
+                    return unsupported(proxy, method, args);
+            }
+        });
+    }
+
+    private interface Handler {
+        Object invoke(Object proxy, String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> handler.invoke(proxy, method.getName(), args == null ? new Object[0] : args)));
+    }
+
+    private static Object unsupported(Object proxy, String method, Object[] args) {
+        switch (method) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return proxy.getClass().getInterfaces()[0].getSimpleName();
+            default:
+                throw new UnsupportedOperationException(method);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.keycloak.authorization.policy.provider.groupmembership;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.models.KeycloakTransactionManager;
+
+/**
+ * Transaction manager that only runs the transactions enlisted after
+ * completion, the way the server does once the session transaction ends.
+ */
+class TestTransactionManager implements KeycloakTransactionManager {
+    private final List<KeycloakTransaction> afterCompletion = new ArrayList<>();
+    private JTAPolicy jtaPolicy = JTAPolicy.REQUIRES_NEW;
+    private boolean active;
+    private boolean rollbackOnly;
+
+    @Override
+    public void begin() {
+        active = true;
+    }
+
+    @Override
+    public void commit() {
+        if (rollbackOnly) {
+            rollback();
+            return;
+        }
+
+        active = false;
+        for (KeycloakTransaction transaction : afterCompletion) {
+            transaction.commit();
+        }
+        afterCompletion.clear();
+    }
+
+    @Override
+    public void rollback() {
+        active = false;
+        for (KeycloakTransaction transaction : afterCompletion) {
+            transaction.rollback();
+        }
+        afterCompletion.clear();
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public JTAPolicy getJTAPolicy() {
+        return jtaPolicy;
+    }
+
+    @Override
+    public void setJTAPolicy(JTAPolicy policy) {
+        this.jtaPolicy = policy;
+    }
+
+    @Override
+    public void enlist(KeycloakTransaction transaction) {
+        throw new UnsupportedOperationException("enlist");
+    }
+
+    @Override
+    public void enlistAfterCompletion(KeycloakTransaction transaction) {
+        if (active && !transaction.isActive()) {
+            transaction.begin();
+        }
+        afterCompletion.add(transaction);
+    }
+
+    @Override
+    public void enlistPrepare(KeycloakTransaction transaction) {
+        throw new UnsupportedOperationException("enlistPrepare");
+    }
+}